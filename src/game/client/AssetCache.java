@@ -0,0 +1,74 @@
+package game.client;
+
+import javax.swing.*;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code AssetCache} utility class keeps decoded images in memory so that
+ * displays reuse them instead of decoding the same files every time they are
+ * shown. Images are keyed by their resource path and the least recently used
+ * are evicted once their estimated size exceeds the memory budget.
+ */
+public class AssetCache {
+
+    // Constants.
+    private static final long MEMORY_BUDGET     = Long.getLong("pkr.assets.budget", 64L * 1024 * 1024); // Bytes.
+    private static final int BYTES_PER_PIXEL    = 4;
+
+    // Cached images, iterated from least to most recently used.
+    private static final Map<String, ImageIcon> images = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes = 0;
+
+    // Usage counters.
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
+
+    // Prevent object creation from the implicit public constructor.
+    private AssetCache() {
+        throw new IllegalStateException("Tried to instantiate the AssetCache utility class");
+    }
+
+    // Property access methods.
+    public static synchronized long getHits()         { return hits; }
+    public static synchronized long getMisses()       { return misses; }
+    public static synchronized long getEvictions()    { return evictions; }
+    public static synchronized long getCachedBytes()  { return cachedBytes; }
+
+    // Paths are relative to the client package, as with getClass().getResource.
+    // Throws a NullPointerException if the image does not exist, as loading it directly would.
+    public static synchronized ImageIcon getImage(String path) {
+        ImageIcon image = images.get(path);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+
+        misses++;
+        URL imageFile = Objects.requireNonNull(AssetCache.class.getResource(path));
+        image = new ImageIcon(imageFile);
+        images.put(path, image);
+        cachedBytes += getSize(image);
+        evictToBudget();
+        return image;
+    }
+
+    private static long getSize(ImageIcon image) {
+        return (long) Math.max(0, image.getIconWidth()) * Math.max(0, image.getIconHeight()) * BYTES_PER_PIXEL;
+    }
+
+    private static void evictToBudget() {
+        Iterator<ImageIcon> leastRecentlyUsed = images.values().iterator();
+        // Always keep the newest image, even if it alone is over budget.
+        while (cachedBytes > MEMORY_BUDGET && images.size() > 1) {
+            ImageIcon evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            cachedBytes -= getSize(evicted);
+            evictions++;
+        }
+    }
+}
@@ -3,31 +3,56 @@ package game.client;
 import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * The {@code AudioManager} utility class allows sounds to be played
  * and stopped from different areas of the game.
+ * <p>
+ * Every sound effect is decoded once when the game starts, and playing one
+ * only hands it to the {@link AudioMixer}, so the game never waits on a file
+ * or the audio system. Music is streamed from disk instead, since the themes
+ * are far too long to keep in memory, and crossfades from one theme to the next.
  */
 public class AudioManager {
 
-    // The currently active sounds.
-    private static Clip activeSoundEffect;
-    private static Clip activeMusic;
+    // Constants.
+    private static final String AUDIO_DIRECTORY = "./src/game/client/audio/";
+    private static final int MUSIC              = 0;
+    private static final int EFFECTS            = 1;
+    private static final int CROSSFADE_MILLIS   = 1000;
 
-    // Audio files.
-    private static File menuThemeAudioFile;
-    private static File raceThemeAudioFile;
-    private static File gameOverAudioFile;
-    private static File gameWinAudioFile;
-    private static File collisionAudioFile;
-    private static File newLapAudioFile;
-    private static File buttonAudioFile;
-    private static File raceCountdown;
+    // Audio files, by sound name.
+    private static final Map<String, String> SOUND_FILES = Map.of(
+            "KART_COLLISION",   "collision.wav",
+            "RACE_COUNTDOWN",   "raceCountdown.wav",
+            "BUTTON_CLICK",     "button.wav",
+            "MENU_THEME",       "menuTheme.wav",
+            "RACE_THEME",       "raceTheme.wav",
+            "GAME_OVER",        "gameOver.wav",
+            "GAME_WIN",         "gameWin.wav",
+            "NEW_LAP",          "newLap.wav");
+
+    // Which sound keeps its voice when the mixer runs out, higher first.
+    private static final Map<String, Integer> SOUND_PRIORITIES = Map.of(
+            "MENU_THEME",       3,
+            "RACE_THEME",       3,
+            "RACE_COUNTDOWN",   2,
+            "GAME_OVER",        2,
+            "GAME_WIN",         2,
+            "NEW_LAP",          1,
+            "KART_COLLISION",   0,
+            "BUTTON_CLICK",     0);
+
+    // Decoded sound effects and music file formats, missing for any sound that couldn't be loaded.
+    private static final Map<String, DecodedSound> sounds = new HashMap<>();
+    private static final Map<String, AudioFormat> musicFormats = new HashMap<>();
+    private static AudioMixer mixer;
 
     // Properties.
     private static boolean isMuted = false;
     private static boolean isMusicPlaying = false;
-    private static boolean isSoundEffectPlaying = false;
 
     // Property access methods.
     public static boolean isMuted() { return isMuted; }
@@ -38,70 +63,67 @@ public class AudioManager {
         throw new IllegalStateException("Tried to instantiate the AudioManager utility class");
     }
 
-    public static void loadAudioFiles() {
-        menuThemeAudioFile = new File("./src/game/client/audio/menuTheme.wav");
-        raceThemeAudioFile = new File("./src/game/client/audio/raceTheme.wav");
-        gameOverAudioFile = new File("./src/game/client/audio/gameOver.wav");
-        gameWinAudioFile = new File("./src/game/client/audio/gameWin.wav");
-        collisionAudioFile = new File("./src/game/client/audio/collision.wav");
-        newLapAudioFile = new File("./src/game/client/audio/newLap.wav");
-        buttonAudioFile = new File("./src/game/client/audio/button.wav");
-        raceCountdown = new File("./src/game/client/audio/raceCountdown.wav");
+    public static synchronized void loadAudioFiles() {
+        for (Map.Entry<String, String> soundFile : SOUND_FILES.entrySet()) {
+            String sound = soundFile.getKey();
+            var file = new File(AUDIO_DIRECTORY + soundFile.getValue());
+            try {
+                if (isMusic(sound)) musicFormats.put(sound, AudioSystem.getAudioFileFormat(file).getFormat());
+                else sounds.put(sound, DecodedSound.decode(file));
+            }
+            catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+                System.err.println("Audio File Error: " + sound + " can't be played, " + e.getMessage());
+            }
+        }
+
+        try {
+            mixer = AudioMixer.start();
+        }
+        catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Audio Error: no sound can be played, " + e.getMessage());
+        }
+    }
+
+    private static boolean isMusic(String sound) {
+        return sound.endsWith("_THEME");
     }
 
     public static void playSound(String sound, boolean loop) {
-        if (!isMuted()) {
-            try {
-                // Setup audio objects.
-                AudioInputStream inputStream = AudioSystem.getAudioInputStream(getSoundFile(sound));
-                AudioFormat format = inputStream.getFormat();
-                DataLine.Info lineInformation = new DataLine.Info(Clip.class, format);
-
-                // Only play new sounds if the previous sound has finished.
-                // Music is defined here as sounds that have been looped
-                // and can be stopped externally.
-                // SoundEffect is defined here as any non-looping sound.
-                if (loop && !isMusicPlaying) {
-                    activeMusic = (Clip) AudioSystem.getLine(lineInformation);
-                    activeMusic.open(inputStream);
-                    activeMusic.loop(Clip.LOOP_CONTINUOUSLY);
-                    activeMusic.start();
-                    isMusicPlaying = true;
-                }
-                else if (!loop && !isSoundEffectPlaying) {
-                    activeSoundEffect = (Clip) AudioSystem.getLine(lineInformation);
-                    activeSoundEffect.open(inputStream);
-                    activeSoundEffect.addLineListener(e -> {
-                        if (e.getType().equals(LineEvent.Type.STOP)) isSoundEffectPlaying = false;
-                    });
-                    activeSoundEffect.start();
-                    isSoundEffectPlaying = true;
-                }
-
-            } catch (LineUnavailableException | UnsupportedAudioFileException | IOException e) {
-                System.err.println("Audio File Error.");
-            }
+        playSound(sound, loop, 1);
+    }
+
+    // Music is defined here as sounds that have been looped and can be stopped externally,
+    // only one plays at a time. Sound effects are any non-looping sound, and can overlap.
+    public static synchronized void playSound(String sound, boolean loop, float gain) {
+        if (isMuted()) return;
+        if (!SOUND_FILES.containsKey(sound)) throw new IllegalStateException("Could not find file for sound " + sound);
+        if (mixer == null) return; // No output, already reported.
+
+        int priority = SOUND_PRIORITIES.get(sound);
+        if (isMusic(sound)) {
+            AudioFormat musicFormat = musicFormats.get(sound);
+            if (musicFormat == null || !loop || isMusicPlaying) return;
+
+            var stream = new MusicStream(new File(AUDIO_DIRECTORY + SOUND_FILES.get(sound)), musicFormat, true);
+            mixer.play(stream, gain, priority, MUSIC, CROSSFADE_MILLIS);
+            isMusicPlaying = true;
+            return;
+        }
+
+        DecodedSound decodedSound = sounds.get(sound);
+        if (decodedSound == null) return; // Failed to load, already reported.
+        if (loop && !isMusicPlaying) {
+            mixer.play(decodedSound, gain, priority, true, MUSIC);
+            isMusicPlaying = true;
         }
+        else if (!loop) mixer.play(decodedSound, gain, priority, false, EFFECTS);
     }
 
-    public static void stopMusic() {
+    // Music fades out, so a theme started straight after crossfades with it.
+    public static synchronized void stopMusic() {
         if (isMusicPlaying) {
-            activeMusic.stop();
+            if (mixer != null) mixer.stopGroup(MUSIC, CROSSFADE_MILLIS);
             isMusicPlaying = false;
         }
     }
-
-    private static File getSoundFile(String type) {
-        return switch (type) {
-            case "KART_COLLISION"   -> collisionAudioFile;
-            case "RACE_COUNTDOWN"   -> raceCountdown;
-            case "BUTTON_CLICK"     -> buttonAudioFile;
-            case "MENU_THEME"       -> menuThemeAudioFile;
-            case "RACE_THEME"       -> raceThemeAudioFile;
-            case "GAME_OVER"        -> gameOverAudioFile;
-            case "GAME_WIN"         -> gameWinAudioFile;
-            case "NEW_LAP"          -> newLapAudioFile;
-            default -> throw new IllegalStateException("Could not find file for sound " + type);
-        };
-    }
 }
@@ -0,0 +1,291 @@
+package game.client;
+
+import javax.sound.sampled.*;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code AudioMixer} class runs the game's audio on its own thread. It owns
+ * the single output line and mixes every playing sound, or voice, into it in
+ * small blocks, so any number of sounds can play at once and the game never
+ * waits on the audio system.
+ * <p>
+ * The game only posts commands to a lock-free queue, which the mixer reads
+ * before each block. When every voice is in use, a new sound replaces the
+ * oldest voice of the lowest priority, as long as it matters at least as much.
+ * <p>
+ * A voice plays either a decoded sound held in memory or a {@link MusicStream}
+ * read from disk, and can fade in as it starts or fade out as it stops, so
+ * one music track can cross into the next.
+ */
+public class AudioMixer implements Runnable {
+
+    // Output format.
+    private static final float OUTPUT_RATE      = 48_000;
+    private static final int OUTPUT_CHANNELS    = 2;
+    private static final int FRAME_SIZE         = OUTPUT_CHANNELS * 2;
+
+    // Constants, which can be overridden at launch with the matching system properties.
+    private static final int BLOCK_FRAMES       = Integer.getInteger("pkr.audio.block", 256); // About 5ms at 48kHz.
+    private static final int MAX_VOICES         = Integer.getInteger("pkr.audio.voices", 16);
+    private static final int FRACTION_BITS      = 16; // Voice positions are fixed-point frames, for resampling.
+    private static final int ONE_FRAME          = 1 << FRACTION_BITS;
+    private static final int VOLUME_BITS        = 24; // Fade levels are fixed-point too, fine enough for long fades.
+    private static final int FULL_VOLUME        = 1 << VOLUME_BITS;
+
+    // Object properties.
+    private final SourceDataLine line;
+    private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+    private final Voice[] voices = new Voice[MAX_VOICES];
+    private int voiceCount = 0;
+    private long voicesStarted = 0;
+    private final int[] mixBuffer = new int[BLOCK_FRAMES * OUTPUT_CHANNELS];
+    private final byte[] outputBuffer = new byte[BLOCK_FRAMES * FRAME_SIZE];
+
+    // Constructor.
+    private AudioMixer(SourceDataLine line) {
+        this.line = line;
+        for (int i = 0; i < MAX_VOICES; i++) voices[i] = new Voice();
+    }
+
+    // The line holds two blocks, one playing while the next is mixed, which sets the latency.
+    public static AudioMixer start() throws LineUnavailableException {
+        var format = new AudioFormat(OUTPUT_RATE, 16, OUTPUT_CHANNELS, true, false);
+        SourceDataLine line = AudioSystem.getSourceDataLine(format);
+        line.open(format, BLOCK_FRAMES * FRAME_SIZE * 2);
+        line.start();
+
+        var mixer = new AudioMixer(line);
+        var thread = new Thread(mixer, "Audio mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        return mixer;
+    }
+
+    // Called from any thread, returns straight away.
+    public void play(DecodedSound sound, float gain, int priority, boolean loop, int group) {
+        commands.add(new Command(false, sound, null, gain, priority, loop, group, 0));
+    }
+
+    // The mixer closes the stream once it stops playing, or if it can't be played at all.
+    public void play(MusicStream stream, float gain, int priority, int group, int fadeMillis) {
+        commands.add(new Command(false, null, stream, gain, priority, false, group, toFrames(fadeMillis)));
+    }
+
+    // Stops every voice started in the group.
+    public void stopGroup(int group) {
+        stopGroup(group, 0);
+    }
+
+    public void stopGroup(int group, int fadeMillis) {
+        commands.add(new Command(true, null, null, 0, 0, false, group, toFrames(fadeMillis)));
+    }
+
+    private static int toFrames(int millis) {
+        return (int) (OUTPUT_RATE * millis / 1000);
+    }
+
+    // Mixer thread loops here, paced by writes blocking until the line has room.
+    @Override
+    public void run() {
+        while (true) {
+            processCommands();
+            mixBlock();
+            line.write(outputBuffer, 0, outputBuffer.length);
+        }
+    }
+
+    private void processCommands() {
+        Command command;
+        while ((command = commands.poll()) != null) {
+            if (command.isStop) stopVoices(command.group, command.fadeFrames);
+            else startVoice(command);
+        }
+    }
+
+    // Voices fading out are left to finish, and removed when their fade reaches silence.
+    private void stopVoices(int group, int fadeFrames) {
+        for (int i = voiceCount - 1; i >= 0; i--) {
+            Voice voice = voices[i];
+            if (voice.group != group) continue;
+            if (fadeFrames == 0) removeVoice(i);
+            else voice.fadeStep = -Math.max(1, FULL_VOLUME / fadeFrames);
+        }
+    }
+
+    private void startVoice(Command command) {
+        Voice voice;
+        if (voiceCount < MAX_VOICES) voice = voices[voiceCount++];
+        else {
+            voice = findVoiceToSteal();
+            if (voice.priority > command.priority) { // Everything playing matters more.
+                if (command.stream != null) command.stream.close();
+                return;
+            }
+            if (voice.stream != null) voice.stream.close();
+        }
+
+        voice.sound = command.sound;
+        voice.stream = command.stream;
+        voice.gain = command.gain;
+        voice.priority = command.priority;
+        voice.loop = command.loop;
+        voice.group = command.group;
+        voice.startOrder = voicesStarted++;
+        voice.fade = command.fadeFrames == 0 ? FULL_VOLUME : 0;
+        voice.fadeStep = command.fadeFrames == 0 ? 0 : Math.max(1, FULL_VOLUME / command.fadeFrames);
+
+        float sampleRate = voice.stream != null ? voice.stream.getSampleRate() : voice.sound.getSampleRate();
+        voice.step = (long) (sampleRate / OUTPUT_RATE * ONE_FRAME);
+        voice.position = voice.stream != null ? 2L * ONE_FRAME : 0; // A stream first reads the two frames it blends.
+    }
+
+    // The lowest priority voice, the oldest among equals.
+    private Voice findVoiceToSteal() {
+        Voice steal = voices[0];
+        for (int i = 1; i < voiceCount; i++) {
+            Voice voice = voices[i];
+            if (voice.priority < steal.priority || (voice.priority == steal.priority && voice.startOrder < steal.startOrder)) steal = voice;
+        }
+        return steal;
+    }
+
+    // Finished voices are swapped with the last, so the active voices are always the first ones.
+    private void removeVoice(int index) {
+        Voice removed = voices[index];
+        voices[index] = voices[voiceCount - 1];
+        voices[voiceCount - 1] = removed;
+        if (removed.stream != null) removed.stream.close();
+        removed.sound = null;
+        removed.stream = null;
+        voiceCount--;
+    }
+
+    private void mixBlock() {
+        Arrays.fill(mixBuffer, 0);
+        for (int i = voiceCount - 1; i >= 0; i--) {
+            Voice voice = voices[i];
+            boolean isPlaying = voice.stream != null ? mixStream(voice) : mixSound(voice);
+            if (!isPlaying) removeVoice(i);
+        }
+
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+            outputBuffer[i * 2] = (byte) sample;
+            outputBuffer[i * 2 + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    // Adds a block of the voice to the mix, resampling to the output rate. Returns false once the voice has ended.
+    private boolean mixSound(Voice voice) {
+        short[] samples = voice.sound.getSamples();
+        int channels = voice.sound.getChannels();
+        int frames = voice.sound.getFrameCount();
+        long end = (long) frames << FRACTION_BITS;
+
+        for (int frame = 0; frame < BLOCK_FRAMES; frame++) {
+            int gain = nextGain(voice);
+            if (gain < 0) return false;
+            if (voice.position >= end) {
+                if (!voice.loop) return false;
+                voice.position -= end;
+            }
+            int index = (int) (voice.position >> FRACTION_BITS);
+            int next = index + 1 < frames ? index + 1 : (voice.loop ? 0 : index);
+            int fraction = (int) (voice.position & (ONE_FRAME - 1));
+
+            for (int channel = 0; channel < OUTPUT_CHANNELS; channel++) {
+                int sourceChannel = Math.min(channel, channels - 1); // Mono plays on both sides.
+                int from = samples[index * channels + sourceChannel];
+                int to = samples[next * channels + sourceChannel];
+                mixBuffer[frame * OUTPUT_CHANNELS + channel] += blend(from, to, fraction, gain);
+            }
+            voice.position += voice.step;
+        }
+        return true;
+    }
+
+    // As above for a stream, which is read a frame at a time so only the two frames being blended are kept.
+    private boolean mixStream(Voice voice) {
+        for (int frame = 0; frame < BLOCK_FRAMES; frame++) {
+            while (voice.position >= ONE_FRAME) {
+                if (!voice.stream.nextFrame(voice.pendingFrame)) {
+                    if (voice.stream.isFinished()) return false;
+                    return true; // The reader has fallen behind, so this block ends in silence.
+                }
+                int[] previous = voice.fromFrame;
+                voice.fromFrame = voice.toFrame;
+                voice.toFrame = voice.pendingFrame;
+                voice.pendingFrame = previous;
+                voice.position -= ONE_FRAME;
+            }
+
+            int gain = nextGain(voice);
+            if (gain < 0) return false;
+            int fraction = (int) voice.position;
+            for (int channel = 0; channel < OUTPUT_CHANNELS; channel++) {
+                mixBuffer[frame * OUTPUT_CHANNELS + channel] += blend(voice.fromFrame[channel], voice.toFrame[channel], fraction, gain);
+            }
+            voice.position += voice.step;
+        }
+        return true;
+    }
+
+    // Moves the voice's fade on by a frame and returns its gain, out of FULL_VOLUME, or -1 once it has faded out.
+    private static int nextGain(Voice voice) {
+        if (voice.fadeStep != 0) {
+            voice.fade = Math.min(FULL_VOLUME, voice.fade + voice.fadeStep);
+            if (voice.fade <= 0) return -1;
+            if (voice.fade == FULL_VOLUME) voice.fadeStep = 0;
+        }
+        return (int) (voice.gain * voice.fade);
+    }
+
+    // Interpolates between two samples and applies the gain.
+    private static int blend(int from, int to, int fraction, int gain) {
+        int sample = from + (int) (((long) (to - from) * fraction) >> FRACTION_BITS);
+        return (int) (((long) sample * gain) >> VOLUME_BITS);
+    }
+
+    private static class Voice {
+        private DecodedSound sound;
+        private MusicStream stream;
+        private int[] fromFrame = new int[OUTPUT_CHANNELS];
+        private int[] toFrame = new int[OUTPUT_CHANNELS];
+        private int[] pendingFrame = new int[OUTPUT_CHANNELS];
+        private float gain;
+        private int fade;
+        private int fadeStep;
+        private int priority;
+        private boolean loop;
+        private int group;
+        private long position;
+        private long step;
+        private long startOrder;
+    }
+
+    private static class Command {
+        private final boolean isStop;
+        private final DecodedSound sound;
+        private final MusicStream stream;
+        private final float gain;
+        private final int priority;
+        private final boolean loop;
+        private final int group;
+        private final int fadeFrames;
+
+        private Command(boolean isStop, DecodedSound sound, MusicStream stream, float gain, int priority, boolean loop,
+                        int group, int fadeFrames) {
+            this.isStop = isStop;
+            this.sound = sound;
+            this.stream = stream;
+            this.fadeFrames = fadeFrames;
+            this.gain = gain;
+            this.priority = priority;
+            this.loop = loop;
+            this.group = group;
+        }
+    }
+}
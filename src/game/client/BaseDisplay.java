@@ -6,7 +6,10 @@ import java.awt.event.*;
 
 /**
  * The {@code BaseDisplay} class delegates implementation to concrete displays
- * that draw their content back to this base instance.
+ * that draw their content back to this base instance. Displays without any Swing
+ * components, such as the race itself, are actively rendered onto a canvas by
+ * a render thread. Others are painted by Swing on a repaint timer, as the
+ * canvas would cover their components.
  */
 public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
 
@@ -14,58 +17,169 @@ public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
     private static final int REFRESH_RATE   = 15;
     private static final int INITIAL_WIDTH  = 850;
     private static final int INITIAL_HEIGHT = 650;
+    private static final boolean ACTIVE_RENDERING   = Boolean.parseBoolean(System.getProperty("pkr.render.active", "true"));
+    private static final int TARGET_FPS             = Integer.getInteger("pkr.render.fps", 60);
 
     // Instance accessor.
     private static BaseDisplay instance;
     public static BaseDisplay getInstance() { return instance; }
 
     // Object properties.
-    private Display currentDisplay;
+    private volatile Display currentDisplay;
+    private final SimulationLoop simulationLoop = new SimulationLoop(this);
+    private final FrameProfiler frameProfiler = new FrameProfiler();
+    private Canvas renderCanvas;
+    private volatile boolean isFullRepaintNeeded = true;
+
+    // Held while the simulation steps, or the display paints or handles input,
+    // so none of them ever see a half-finished step.
+    private final Object simulationLock = new Object();
 
     // Property access methods.
+    public float getInterpolationAlpha() { return simulationLoop.getAlpha(); }
+    public boolean isActivelyRendered()   { return renderCanvas != null && renderCanvas.isVisible(); }
+    public FrameProfiler getFrameProfiler() { return frameProfiler; }
+
     public void setCurrentDisplay(Display newDisplay) {
         currentDisplay = newDisplay;
+        isFullRepaintNeeded = true; // Nothing on screen belongs to the new display yet.
         requestFocus();
     }
 
     // Constructor.
     public BaseDisplay() {
+        this(true);
+    }
+
+    // Without its threads, nothing steps or draws the displays unless the owner does.
+    private BaseDisplay(boolean isOnScreen) {
         setPreferredSize(new Dimension(INITIAL_WIDTH, INITIAL_HEIGHT));
         setLayout(null);
         addKeyListener(this);
 
         instance = this;
 
+        if (!isOnScreen) {
+            setSize(INITIAL_WIDTH, INITIAL_HEIGHT);
+            return;
+        }
+
         setCurrentDisplay(new MenuDisplay());
 
-        new Timer(REFRESH_RATE, e -> repaint()).start();
+        var simulationThread = new Thread(simulationLoop, "Simulation");
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+
+        if (ACTIVE_RENDERING) startRenderThread();
+        new Timer(REFRESH_RATE, e -> repaintCurrentDisplay()).start();
+    }
+
+    // A display with no window or threads, for driving displays offscreen such as in benchmarks.
+    public static BaseDisplay createOffscreen() {
+        return new BaseDisplay(false);
+    }
+
+    // Only repaint what the display reports has changed, rather than the whole panel.
+    private void repaintCurrentDisplay() {
+        if (isActivelyRendered()) return;
+        if (isFullRepaintNeeded || frameProfiler.isOverlayVisible()) {
+            isFullRepaintNeeded = false;
+            repaint();
+            return;
+        }
+
+        Rectangle dirtyRegion;
+        synchronized (simulationLock) {
+            dirtyRegion = currentDisplay.getDirtyRegion();
+        }
+        if (dirtyRegion == null) repaint();
+        else if (!dirtyRegion.isEmpty()) repaint(dirtyRegion);
+    }
+
+    private void startRenderThread() {
+        renderCanvas = new Canvas();
+        renderCanvas.setBounds(0, 0, INITIAL_WIDTH, INITIAL_HEIGHT);
+        renderCanvas.setIgnoreRepaint(true);
+        renderCanvas.setFocusable(false); // Keep key events going to this panel.
+        renderCanvas.setVisible(false); // Shown once a display without components is active.
+        add(renderCanvas);
+
+        var renderThread = new Thread(new RenderLoop(this, renderCanvas, TARGET_FPS), "Render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    // Called from the render thread to draw one frame onto the canvas.
+    public void renderFrame(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        drawCurrentDisplay(g);
+    }
+
+    public void stepCurrentDisplay() {
+        synchronized (simulationLock) {
+            long stepStartTime = System.nanoTime();
+            currentDisplay.step();
+            frameProfiler.record(FrameProfiler.SIMULATION, System.nanoTime() - stepStartTime);
+        }
     }
 
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        currentDisplay.update(g);
+        if (isActivelyRendered()) return; // Drawn by the render thread instead.
+        drawCurrentDisplay(g);
+    }
+
+    private void drawCurrentDisplay(Graphics g) {
+        synchronized (simulationLock) {
+            long updateStartTime = System.nanoTime();
+            currentDisplay.update(g);
+            frameProfiler.record(FrameProfiler.UPDATE, System.nanoTime() - updateStartTime);
+        }
+        if (frameProfiler.isOverlayVisible()) frameProfiler.drawOverlay(g);
+        frameProfiler.endFrame();
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
         AudioManager.playSound("BUTTON_CLICK", false);
-        currentDisplay.buttonHandler(e.getSource());
+        synchronized (simulationLock) {
+            currentDisplay.buttonHandler(e.getSource());
+        }
         repaint();
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        currentDisplay.keyHandler(e.getKeyCode(), true);
+        // The frame time overlay can be shown over any display.
+        if (e.getKeyCode() == KeyEvent.VK_F3) {
+            frameProfiler.toggleOverlay();
+            isFullRepaintNeeded = true;
+        }
+        synchronized (simulationLock) {
+            currentDisplay.keyHandler(e.getKeyCode(), true);
+        }
     }
 
     public void keyReleased(KeyEvent e) {
-        currentDisplay.keyHandler(e.getKeyCode(), false);
+        synchronized (simulationLock) {
+            currentDisplay.keyHandler(e.getKeyCode(), false);
+        }
     }
 
     // Wipe components added from other displays to prevent them from building up.
     public void clearComponents() {
-        for (Component component : getComponents()) remove(component);
+        for (Component component : getComponents()) {
+            if (component != renderCanvas) remove(component);
+        }
+        if (renderCanvas != null) renderCanvas.setVisible(true);
+    }
+
+    // The canvas would hide any components, so fall back to Swing painting while there are some.
+    private void addComponent(Component component) {
+        add(component);
+        if (renderCanvas != null) renderCanvas.setVisible(false);
     }
 
     public JButton addButton(ImageIcon image, int x, int y) {
@@ -75,7 +189,7 @@ public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
         button.setBorderPainted(false);
         button.setFocusPainted(false);
         button.setContentAreaFilled(false);
-        add(button);
+        addComponent(button);
         button.addActionListener(this);
         button.setVisible(true);
         button.addMouseListener(new MouseAdapter() {
@@ -99,7 +213,7 @@ public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
         label.setHorizontalAlignment(SwingConstants.CENTER);
         label.setForeground(fontColour);
         label.setFont(new Font("Arial", Font.BOLD, fontSize));
-        add(label);
+        addComponent(label);
         label.setVisible(true);
         return label;
     }
@@ -113,7 +227,7 @@ public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
         input.setBackground(new Color(18,18,18));
         input.setBorder(null);
         input.setFont(new Font("Arial", Font.BOLD, fontSize));
-        add(input);
+        addComponent(input);
         input.setVisible(true);
         input.addMouseListener(new MouseAdapter() {
             @Override
@@ -0,0 +1,55 @@
+package game.client;
+
+/**
+ * The {@code ClockSync} class estimates the offset between this machine's clock
+ * and the server's clock, in the style of NTP. Each sample is a request timestamped
+ * on sending and answered with the server's time. The sample with the shortest
+ * round trip is kept, as it has the least room for one-way delay to skew it.
+ */
+public class ClockSync {
+
+    // Constants.
+    private static final int SAMPLES_PER_BURST = 8;
+
+    // Object properties.
+    private long offset;
+    private long bestRoundTrip;
+    private int samplesTaken;
+    private boolean isSynchronised = false;
+
+    // Property access methods.
+    public synchronized boolean isSynchronised() { return isSynchronised; }
+
+    // Local time in microseconds, on the same monotonic clock used for all game timing.
+    public static long getLocalTime() {
+        return System.nanoTime() / 1000;
+    }
+
+    // The current offset is kept until the new burst produces its first sample.
+    public synchronized void beginBurst() {
+        samplesTaken = 0;
+        bestRoundTrip = Long.MAX_VALUE;
+    }
+
+    /**
+     * Records the server's reply to a request sent at {@code requestTime}.
+     *
+     * @return true while the burst still needs more samples.
+     */
+    public synchronized boolean addSample(long requestTime, long serverTime) {
+        long roundTrip = getLocalTime() - requestTime;
+
+        // Assume the reply took half the round trip to arrive.
+        if (roundTrip >= 0 && roundTrip < bestRoundTrip) {
+            bestRoundTrip = roundTrip;
+            offset = serverTime - (requestTime + roundTrip / 2);
+            isSynchronised = true;
+        }
+        samplesTaken++;
+        return samplesTaken < SAMPLES_PER_BURST;
+    }
+
+    public synchronized long toLocalTime(long serverTime) {
+        return serverTime - offset;
+    }
+}
@@ -0,0 +1,52 @@
+package game.client;
+
+import javax.sound.sampled.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The {@code DecodedSound} class holds a sound fully decoded into memory as
+ * signed 16-bit samples, interleaved by channel, so it can be played any
+ * number of times without touching the disk or decoding again.
+ */
+public class DecodedSound {
+
+    // Constants.
+    private static final int SAMPLE_SIZE = 16;
+
+    // Object properties.
+    private final float sampleRate;
+    private final int channels;
+    private final short[] samples;
+
+    // Property access methods.
+    public float getSampleRate()    { return sampleRate; }
+    public int getChannels()        { return channels; }
+    public short[] getSamples()     { return samples; }
+    public int getFrameCount()      { return samples.length / channels; }
+
+    // Constructor.
+    private DecodedSound(float sampleRate, int channels, short[] samples) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.samples = samples;
+    }
+
+    // Keeps the file's sample rate and channels, so nothing is lost in the conversion.
+    public static DecodedSound decode(File file) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream fileStream = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat fileFormat = fileStream.getFormat();
+            var pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, fileFormat.getSampleRate(), SAMPLE_SIZE,
+                    fileFormat.getChannels(), fileFormat.getChannels() * SAMPLE_SIZE / 8, fileFormat.getSampleRate(), false);
+
+            try (AudioInputStream pcmStream = AudioSystem.getAudioInputStream(pcmFormat, fileStream)) {
+                byte[] bytes = pcmStream.readAllBytes();
+                var samples = new short[bytes.length / 2];
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+                return new DecodedSound(pcmFormat.getSampleRate(), pcmFormat.getChannels(), samples);
+            }
+        }
+    }
+}
@@ -14,4 +14,14 @@ public interface Display {
     void update(Graphics g);
     void buttonHandler(Object button);
     void keyHandler(int keyCode, boolean keyActivated);
+
+    // Advance the display by one fixed timestep, called from the simulation thread.
+    default void step() {
+        // Most displays have nothing to simulate.
+    }
+
+    // The part of the display that needs repainting, or null to repaint all of it.
+    default Rectangle getDirtyRegion() {
+        return null;
+    }
 }
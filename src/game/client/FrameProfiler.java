@@ -0,0 +1,208 @@
+package game.client;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code FrameProfiler} class records how long each part of a frame
+ * takes into fixed-size histograms, so it can run for any length of time
+ * without growing. The results can be shown in an on-screen overlay and
+ * exported to CSV so frame pacing can be compared between builds. Exports
+ * are written from a background thread, from a copy of the recorded times.
+ */
+public class FrameProfiler {
+
+    // Sections of a frame.
+    public static final int FRAME           = 0; // Time between the end of one frame and the next.
+    public static final int SIMULATION      = 1;
+    public static final int UPDATE          = 2;
+    public static final int HUD             = 3;
+    public static final int NETWORK         = 4;
+    private static final String[] SECTION_NAMES = {"frame", "simulation", "update", "hud", "network"};
+
+    // Constants.
+    private static final long BUCKET_WIDTH  = 100_000; // Nanoseconds.
+    private static final int BUCKETS        = 500; // Up to 50ms, with anything slower in the last bucket.
+    private static final int SPARKLINE_SIZE = 120;
+    private static final double NANOS_PER_MS = 1_000_000.0;
+    private static final boolean EXPORT_ENABLED = Boolean.getBoolean("pkr.profile.export");
+    private static final String EXPORT_DIRECTORY = System.getProperty("pkr.profile.dir", "./profiles");
+
+    // Writes exports in the order they're requested, away from the threads being profiled.
+    private static final ExecutorService exporter = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "Profile export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Overlay appearance.
+    private static final Color OVERLAY_BACKGROUND   = new Color(0, 0, 0, 180);
+    private static final Color SPARKLINE_COLOUR     = new Color(90, 200, 90);
+    private static final Color BUDGET_COLOUR        = new Color(223, 53, 53);
+    private static final Font OVERLAY_FONT          = new Font("Monospaced", Font.PLAIN, 12);
+    private static final int OVERLAY_X              = 10;
+    private static final int OVERLAY_Y              = 60;
+    private static final int OVERLAY_WIDTH          = 300;
+    private static final int LINE_HEIGHT            = 14;
+    private static final int SPARKLINE_HEIGHT       = 40;
+    private static final long FRAME_BUDGET          = 16_666_667; // One frame at 60 FPS.
+
+    // Recorded times.
+    private final long[][] histograms = new long[SECTION_NAMES.length][BUCKETS];
+    private final long[] sampleCounts = new long[SECTION_NAMES.length];
+    private final long[] totalTimes = new long[SECTION_NAMES.length];
+    private final long[] maxTimes = new long[SECTION_NAMES.length];
+    private final long[] recentFrames = new long[SPARKLINE_SIZE];
+    private int recentFrameIndex = 0;
+    private long lastFrameEndTime = 0;
+
+    // Object properties.
+    private volatile boolean isOverlayVisible = false;
+
+    // Property access methods.
+    public boolean isOverlayVisible() { return isOverlayVisible; }
+    public boolean isExportEnabled()  { return EXPORT_ENABLED; }
+
+    // Constructors.
+    public FrameProfiler() {}
+
+    // A copy of the recorded times, so they can be exported while recording carries on.
+    private FrameProfiler(FrameProfiler source) {
+        for (int section = 0; section < SECTION_NAMES.length; section++) {
+            System.arraycopy(source.histograms[section], 0, histograms[section], 0, BUCKETS);
+        }
+        System.arraycopy(source.sampleCounts, 0, sampleCounts, 0, sampleCounts.length);
+        System.arraycopy(source.totalTimes, 0, totalTimes, 0, totalTimes.length);
+        System.arraycopy(source.maxTimes, 0, maxTimes, 0, maxTimes.length);
+    }
+
+    public void toggleOverlay() {
+        isOverlayVisible = !isOverlayVisible;
+    }
+
+    public synchronized void record(int section, long time) {
+        int bucket = (int) Math.min(time / BUCKET_WIDTH, BUCKETS - 1);
+        histograms[section][bucket]++;
+        sampleCounts[section]++;
+        totalTimes[section] += time;
+        if (time > maxTimes[section]) maxTimes[section] = time;
+    }
+
+    // Called once each frame has been drawn.
+    public synchronized void endFrame() {
+        long now = System.nanoTime();
+        if (lastFrameEndTime != 0) {
+            long frameTime = now - lastFrameEndTime;
+            record(FRAME, frameTime);
+            recentFrames[recentFrameIndex] = frameTime;
+            recentFrameIndex = (recentFrameIndex + 1) % SPARKLINE_SIZE;
+        }
+        lastFrameEndTime = now;
+    }
+
+    public synchronized void reset() {
+        for (long[] histogram : histograms) Arrays.fill(histogram, 0);
+        Arrays.fill(sampleCounts, 0);
+        Arrays.fill(totalTimes, 0);
+        Arrays.fill(maxTimes, 0);
+        Arrays.fill(recentFrames, 0);
+        recentFrameIndex = 0;
+        lastFrameEndTime = 0;
+    }
+
+    // The upper edge of the bucket holding the given percentile, in nanoseconds.
+    private long getPercentile(int section, double percentile) {
+        long count = sampleCounts[section];
+        if (count == 0) return 0;
+
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS - 1; bucket++) {
+            seen += histograms[section][bucket];
+            if (seen >= target) return Math.min((bucket + 1) * BUCKET_WIDTH, maxTimes[section]);
+        }
+        return maxTimes[section];
+    }
+
+    private static double toMillis(long time) {
+        return time / NANOS_PER_MS;
+    }
+
+    public synchronized void drawOverlay(Graphics g) {
+        int height = LINE_HEIGHT * (SECTION_NAMES.length + 1) + SPARKLINE_HEIGHT + 12;
+        g.setColor(OVERLAY_BACKGROUND);
+        g.fillRect(OVERLAY_X, OVERLAY_Y, OVERLAY_WIDTH, height);
+
+        g.setFont(OVERLAY_FONT);
+        g.setColor(Color.white);
+        int y = OVERLAY_Y + LINE_HEIGHT;
+        g.drawString(String.format("%-10s %7s %7s %7s", "ms", "p50", "p99", "max"), OVERLAY_X + 6, y);
+        for (int section = 0; section < SECTION_NAMES.length; section++) {
+            y += LINE_HEIGHT;
+            g.drawString(String.format("%-10s %7.2f %7.2f %7.2f", SECTION_NAMES[section],
+                    toMillis(getPercentile(section, 0.5)), toMillis(getPercentile(section, 0.99)),
+                    toMillis(maxTimes[section])), OVERLAY_X + 6, y);
+        }
+
+        drawSparkline(g, OVERLAY_X + 6, y + 6 + SPARKLINE_HEIGHT);
+    }
+
+    // Recent frame times, oldest on the left, scaled so the frame budget is half the height.
+    private void drawSparkline(Graphics g, int left, int bottom) {
+        int budgetY = bottom - SPARKLINE_HEIGHT / 2;
+        g.setColor(BUDGET_COLOUR);
+        g.drawLine(left, budgetY, left + SPARKLINE_SIZE * 2, budgetY);
+
+        g.setColor(SPARKLINE_COLOUR);
+        for (int i = 0; i < SPARKLINE_SIZE; i++) {
+            long frameTime = recentFrames[(recentFrameIndex + i) % SPARKLINE_SIZE];
+            int barHeight = (int) Math.min(SPARKLINE_HEIGHT, frameTime * SPARKLINE_HEIGHT / (FRAME_BUDGET * 2));
+            g.drawLine(left + i * 2, bottom, left + i * 2, bottom - barHeight);
+        }
+    }
+
+    // Writes the race's statistics and histograms, one row per value, if exports are enabled.
+    // Only the copy is made on the calling thread, the file is written in the background.
+    public void exportCsv(String label) {
+        if (!EXPORT_ENABLED) return;
+
+        FrameProfiler snapshot;
+        synchronized (this) {
+            snapshot = new FrameProfiler(this);
+        }
+        Path exportFile = Paths.get(EXPORT_DIRECTORY, "frames-" + label + "-" + System.currentTimeMillis() + ".csv");
+        exporter.execute(() -> snapshot.writeCsv(exportFile));
+    }
+
+    private void writeCsv(Path exportFile) {
+        try {
+            Files.createDirectories(exportFile.getParent());
+            try (var output = new PrintWriter(Files.newBufferedWriter(exportFile))) {
+                output.println("section,metric,value");
+                for (int section = 0; section < SECTION_NAMES.length; section++) {
+                    String name = SECTION_NAMES[section];
+                    long count = sampleCounts[section];
+                    output.println(name + ",samples," + count);
+                    output.println(name + ",mean_ms," + (count == 0 ? 0 : toMillis(totalTimes[section] / count)));
+                    output.println(name + ",p50_ms," + toMillis(getPercentile(section, 0.5)));
+                    output.println(name + ",p99_ms," + toMillis(getPercentile(section, 0.99)));
+                    output.println(name + ",max_ms," + toMillis(maxTimes[section]));
+                    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                        if (histograms[section][bucket] == 0) continue;
+                        output.println(name + ",bucket_" + toMillis(bucket * BUCKET_WIDTH) + "_ms," + histograms[section][bucket]);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Failed to export frame times: " + e.getMessage());
+        }
+    }
+}
@@ -2,7 +2,10 @@ package game.client;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * The {@code Game} class controls events that occur
@@ -24,16 +27,23 @@ public class Game {
     private Racetrack racetrack;
     private ControlledPlayer mainPlayer;
     private List<Player> opponents;
+    private final Map<Integer, RemoteKart> remoteKarts = new HashMap<>();
+    private final KartSpatialHash kartSpatialHash = new KartSpatialHash();
+    private final BiConsumer<Kart, Kart> kartCollisionHandler = (first, second) -> kartCollision(first.getOwner(), second.getOwner());
+    private LockstepSession lockstepSession;
+    private RaceStandings raceStandings;
     private List<Rectangle> gameCheckpoints;
     private int trackType;
     private boolean isBadWeather;
     private boolean isGameOver;
     private int currentLap;
+    private final long[] lapCompletionTimes = new long[TOTAL_LAPS];
     private int nextCheckpoint;
     private int gameEndType;
     private String gameEndReason;
-    private final Timer gameTimer;
-    private int gameTimeInSecondsTotal;
+    private long gameStartTime;
+    private long gameEndTime;
+    private boolean isGameTimerRunning;
 
     // Property access methods.
     public Racetrack getRacetrack()         { return racetrack; }
@@ -44,19 +54,32 @@ public class Game {
     public ControlledPlayer getMainPlayer() { return mainPlayer; }
     public int getTrackType()               { return trackType; }
     public boolean getWeatherForecast()     { return isBadWeather; }
+    public RemoteKart getRemoteKart(int playerNumber) { return remoteKarts.get(playerNumber); }
+    public LockstepSession getLockstepSession()         { return lockstepSession; }
+    public RaceStandings getRaceStandings()             { return raceStandings; }
+    public boolean isLockstep()                         { return lockstepSession != null; }
 
     // Constructor.
     public Game(GameOptions options) {
         collectGameInformation(options);
 
-        for (Player player : opponents) assignKartToPlayer(player, options);
+        for (Player player : opponents) {
+            assignKartToPlayer(player, options);
+            remoteKarts.put(player.getPlayerNumber(), new RemoteKart(player.getKart()));
+            kartSpatialHash.add(player.getKart());
+            raceStandings.add(player.getKart());
+        }
         assignKartToPlayer(mainPlayer, options);
+        kartSpatialHash.add(mainPlayer.getKart());
+        raceStandings.add(mainPlayer.getKart());
 
         currentLap = 1;
         nextCheckpoint = 0;
 
-        gameTimeInSecondsTotal = 0;
-        gameTimer = new Timer(1000, e -> gameTimeInSecondsTotal++);
+        isGameTimerRunning = false;
+
+        // The server decides whether karts are simulated from shared inputs rather than sent as states.
+        if (ServerManager.getHandler().isLockstep()) lockstepSession = new LockstepSession(this);
 
         ServerManager.getHandler().setGame(this);
     }
@@ -65,19 +88,46 @@ public class Game {
         trackType = options.getGameMap();
         isBadWeather = options.getWeather();
         racetrack = new Racetrack(trackType);
+        raceStandings = new RaceStandings(racetrack.getTrackData());
         gameCheckpoints = racetrack.getCheckpoints();
         opponents = options.getOpponents();
         mainPlayer = options.getMainPlayer();
     }
 
-    public void startGameTimer() {
-        gameTimer.start();
+    // The game time is read from the clock rather than counted, so it can't drift between players.
+    public void startGameTimer(long startTime) {
+        gameStartTime = startTime;
+        isGameTimerRunning = true;
+    }
+
+    private void stopGameTimer() {
+        if (isGameTimerRunning) gameEndTime = ClockSync.getLocalTime();
+        else gameEndTime = gameStartTime;
+        isGameTimerRunning = false;
+    }
+
+    // Elapsed game time in microseconds.
+    public long getGameTime() {
+        long currentTime = isGameTimerRunning ? ClockSync.getLocalTime() : gameEndTime;
+        return Math.max(0, currentTime - gameStartTime);
     }
 
     public void removeOpponent(int opponentNumber) {
+        for (Player opponent : opponents) {
+            if (opponent.getPlayerNumber() != opponentNumber) continue;
+            kartSpatialHash.remove(opponent.getKart());
+            raceStandings.remove(opponent.getKart());
+        }
+        if (lockstepSession != null) lockstepSession.removePlayer(opponentNumber);
         opponents.removeIf(opponent -> opponent.getPlayerNumber() == opponentNumber);
     }
 
+    // Opponents are moved only by the states received for them, never by local physics.
+    public void updateRemoteKarts() {
+        long now = System.nanoTime();
+        for (Player opponent : opponents) remoteKarts.get(opponent.getPlayerNumber()).update(now);
+    }
+
     public void assignKartToPlayer(Player player, GameOptions options) {
         // Setup information needed for the kart.
         int startDirection = racetrack.getStartDirection();
@@ -90,59 +140,72 @@ public class Game {
     }
 
     public void winGame(Player winner) {
+        if (isGameOver) return;
         isGameOver = true;
-        gameTimer.stop();
+        stopGameTimer();
         gameEndType = RACE_WON;
         gameEndReason = "Player " + winner.getPlayerNumber() + " has won the game!";
-        ServerManager.getHandler().raceWon();
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
+        ServerManager.getHandler().raceWon(getFinishTime(), getLapTimes());
+        showGameOver();
     }
 
     public void loseGame(String[] data) {
+        if (isGameOver) return;
         isGameOver = true;
         int winnerNumber = Integer.parseInt(data[1]);
-        gameTimer.stop();
+        stopGameTimer();
         gameEndType = RACE_LOST;
         gameEndReason = "Player " + winnerNumber + " has won the game!";
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
+        showGameOver();
     }
 
     public void kartCollision(Player victim1, Player victim2) {
+        if (isGameOver) return;
         isGameOver = true;
-        gameTimer.stop();
+        stopGameTimer();
         gameEndType = KART_CRASHED;
         gameEndReason = "Player " + victim1.getPlayerNumber() + " and Player " + victim2.getPlayerNumber() + " have crashed!";
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
+        showGameOver();
     }
 
     public void endGame() {
         if (isGameOver) return;
-        gameTimer.stop();
+        stopGameTimer();
         gameEndType = NO_OPPONENTS;
         gameEndReason = "No opponents left in the race!";
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
+        showGameOver();
+    }
+
+    // Game over can be reached from the simulation or connection threads, so hand the display over to Swing.
+    // The race's frame times are only exported when profiling is enabled, and written off this thread.
+    private void showGameOver() {
+        FrameProfiler frameProfiler = BaseDisplay.getInstance().getFrameProfiler();
+        if (frameProfiler.isExportEnabled()) frameProfiler.exportCsv("map" + trackType);
+        SwingUtilities.invokeLater(() -> BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this)));
     }
 
     // Collision detection between other karts, boundaries, and checkpoints.
     public boolean isKartValid(Kart kart) {
         checkRaceCheckpoints(kart);
-        checkCollisionWithOtherKart(kart);
         return !kart.hasCrashed();
     }
 
-    public void checkCollisionWithOtherKart(Kart playerKart) {
-        for (Player opponent : opponents) {
-            Kart kart = opponent.getKart();
-            if (playerKart.equals(kart)) continue;
-            if (playerKart.getHitBox().intersects(kart.getHitBox())) {
-                kartCollision(playerKart.getOwner(), opponent);
-            }
-        }
+    // Every kart is checked against every other kart near it, each pair once per step,
+    // along the whole of both karts' moves.
+    public void checkKartCollisions() {
+        kartSpatialHash.update();
+        kartSpatialHash.findCollisions(kartCollisionHandler);
+    }
+
+    // Once every kart has moved, so the standings reflect the whole step.
+    public void updateStandings() {
+        raceStandings.update();
     }
 
     public void checkRaceCheckpoints(Kart kart) {
         boolean kartGoingRightWay = !kart.isGoingWrongWay();
-        boolean kartPassedNextCheckpoint = kart.getHitBox().intersects(gameCheckpoints.get(nextCheckpoint));
+        // Checkpoints are thin lines, so test the whole move the kart made rather than where it ended up.
+        boolean kartPassedNextCheckpoint = SweptCollision.isTouching(kart, gameCheckpoints.get(nextCheckpoint));
 
         if (kartPassedNextCheckpoint && kartGoingRightWay) {
             nextCheckpoint++;
@@ -151,6 +214,7 @@ public class Game {
     }
 
     private void completedLap(Kart kart) {
+        lapCompletionTimes[currentLap - 1] = getGameTime();
         if (currentLap < TOTAL_LAPS) {
             currentLap++;
             nextCheckpoint = 0; // Reset checkpoints.
@@ -159,8 +223,24 @@ public class Game {
         else winGame(kart.getOwner());
     }
 
+    // Race and lap times in milliseconds, as recorded by the server.
+    private int getFinishTime() {
+        return (int) (lapCompletionTimes[TOTAL_LAPS - 1] / 1000);
+    }
+
+    private int[] getLapTimes() {
+        int[] lapTimes = new int[TOTAL_LAPS];
+        long lapStartTime = 0;
+        for (int lap = 0; lap < TOTAL_LAPS; lap++) {
+            lapTimes[lap] = (int) ((lapCompletionTimes[lap] - lapStartTime) / 1000);
+            lapStartTime = lapCompletionTimes[lap];
+        }
+        return lapTimes;
+    }
+
     // Format the game time to use "00:00".
     public String getGameTimeFormatted() {
+        int gameTimeInSecondsTotal = (int) (getGameTime() / 1_000_000);
         int gameTimeInMinutes = gameTimeInSecondsTotal / 60;
         int gameTimeInSeconds = gameTimeInSecondsTotal % 60;
 
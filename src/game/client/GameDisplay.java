@@ -1,7 +1,6 @@
 package game.client;
 
 import javax.swing.*;
-import javax.swing.Timer;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.util.*;
@@ -21,10 +20,12 @@ import java.util.List;
 public class GameDisplay implements Display {
 
     // Constants.
-    private static final int RIGHT      = 0;
-    private static final int LEFT       = 1;
-    private static final int FORWARD    = 1;
-    private static final int BACKWARD   = -1;
+    private static final long COUNTDOWN_STAGE_TIME  = 1_000_000; // Microseconds.
+    private static final int RACE_START_STAGE       = 3;
+    private static final long SPECTATOR_REFRESH     = 100_000_000; // Nanoseconds between redraws of the crowd animations.
+    private static final Color HUD_BACKGROUND       = new Color(0,0,0, 128); // Black semi-transparent.
+    private static final Font HUD_FONT              = new Font("Arial", Font.BOLD, 30);
+    private static final int STANDINGS_X            = 720;
 
     // Image sets.
     private final ImageIcon[] raceCountdown = new ImageIcon[4];
@@ -58,13 +59,18 @@ public class GameDisplay implements Display {
     private Kart mainPlayerKart;
     private Game activeGame;
     private List<Player> opponents;
-    private Timer raceCountdownTimer;
     private int raceCountdownStage;
+    private boolean raceCountdownStarted;
     private boolean raceCountdownFinished;
     private boolean isBadWeather;
     private boolean hasRaceStarted;
 
     private final ServerHandler connection = ServerManager.getHandler();
+    private final KartUpdateFilter kartUpdateFilter = new KartUpdateFilter();
+    private final KartPredictor kartPredictor = new KartPredictor();
+    private RaceCompositor compositor;
+    private final HudTextRenderer gameTimeRenderer = new HudTextRenderer(HUD_FONT, Color.white);
+    private final StandingsPanel standingsPanel = new StandingsPanel(HUD_BACKGROUND);
 
     public void suspendForwardMovement() {
         if (keyForwardActive) keyForwardActive = false;
@@ -78,6 +84,7 @@ public class GameDisplay implements Display {
         loadImages();
         collectPlayerControls();
         beginRaceCountdown();
+        baseDisplay.getFrameProfiler().reset(); // Profile each race on its own.
         AudioManager.stopMusic();
         AudioManager.playSound("RACE_THEME", true);
     }
@@ -100,105 +107,207 @@ public class GameDisplay implements Display {
 
     private void loadImages() {
         try {
-            Arrays.setAll(raceCountdown, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/racetrack/raceCountdown" + i + ".png"))));
-            Arrays.setAll(lapImages, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/lap" + i + ".png"))));
-            Arrays.setAll(weatherImages, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/racetrack/weather" + i + ".gif"))));
+            Arrays.setAll(raceCountdown, i -> AssetCache.getImage("images/racetrack/raceCountdown" + i + ".png"));
+            Arrays.setAll(lapImages, i -> AssetCache.getImage("images/ui/lap" + i + ".png"));
+            Arrays.setAll(weatherImages, i -> AssetCache.getImage("images/racetrack/weather" + i + ".gif"));
 
             racetrackBackground = racetrack.getImage();
-            wrongWayMessage = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/wrongWay.png")));
-            spectators0 = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/racetrack/spectators0.gif")));
-            spectators1 = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/racetrack/spectators1.gif")));
-            spectators2 = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/racetrack/spectators2.gif")));
-            playerPointer = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/playerPointer.gif")));
+            wrongWayMessage = AssetCache.getImage("images/ui/wrongWay.png");
+            spectators0 = AssetCache.getImage("images/racetrack/spectators0.gif");
+            spectators1 = AssetCache.getImage("images/racetrack/spectators1.gif");
+            spectators2 = AssetCache.getImage("images/racetrack/spectators2.gif");
+            playerPointer = AssetCache.getImage("images/ui/playerPointer.gif");
             weather = weatherImages[activeGame.getTrackType()];
         }
         catch (NullPointerException e) {
             System.err.println("Failed to locate a necessary image file.");
         }
+        createCompositor();
+    }
+
+    // The racetrack never changes, so it is drawn once, and the crowd is only redrawn as it animates.
+    private void createCompositor() {
+        compositor = new RaceCompositor(racetrackBackground);
+        compositor.addDecoration(spectators0, 173, 59, SPECTATOR_REFRESH);
+        compositor.addDecoration(spectators1, 214, 449, SPECTATOR_REFRESH);
+        compositor.addDecoration(spectators2, 571, 447, SPECTATOR_REFRESH);
     }
 
     private void beginRaceCountdown() {
         raceCountdownStage = 0;
+        raceCountdownStarted = false;
         raceCountdownFinished = false;
-        raceCountdownTimer = new Timer(1000, e -> updateRaceCountdown());
-        raceCountdownTimer.start();
-        AudioManager.playSound("RACE_COUNTDOWN", false);
+    }
+
+    @Override
+    public void step() {
+        updateRaceCountdown();
+        if (activeGame.isLockstep()) stepLockstep(readKeyInputs());
+        else stepPredicted(readKeyInputs());
+    }
+
+    // The race carries on while paused, with no keys held. Each step still records its input and
+    // sends the kart as usual, so the server sees every frame the kart coasted for.
+    public void stepWhilePaused() {
+        updateRaceCountdown();
+        if (activeGame.isLockstep()) stepLockstep(0);
+        else stepPredicted(0);
+    }
+
+    private void stepPredicted(int input) {
+        if (kartUpdateFilter.shouldSend(mainPlayerKart)) {
+            long sendStartTime = System.nanoTime();
+            connection.sendKart(mainPlayerKart, kartPredictor.getLatestSequence());
+            baseDisplay.getFrameProfiler().record(FrameProfiler.NETWORK, System.nanoTime() - sendStartTime);
+        }
+        updateOtherKarts();
+        updatePlayerKart();
+        activeGame.checkKartCollisions(); // Once every kart has moved, so each is tested along its full move.
+        activeGame.updateStandings();
+        processInput(input);
+    }
+
+    // Every kart is simulated locally from the inputs all players share, and nothing waits on the
+    // server's view of the player's kart, so there is nothing to predict or correct.
+    private void stepLockstep(int input) {
+        if (!hasRaceStarted) return;
+
+        mainPlayerKart.savePreviousPosition();
+        for (Player opponent : opponents) opponent.getKart().savePreviousPosition();
+
+        long sendStartTime = System.nanoTime();
+        activeGame.getLockstepSession().step(input);
+        baseDisplay.getFrameProfiler().record(FrameProfiler.NETWORK, System.nanoTime() - sendStartTime);
+
+        if (!activeGame.isKartValid(mainPlayerKart)) suspendForwardMovement();
+        activeGame.checkKartCollisions();
+        activeGame.updateStandings();
     }
 
     @Override
     public void update(Graphics g) {
-        connection.sendKart(mainPlayerKart);
-        drawRacetrack(g);
-        updateOtherKarts(g);
-        updatePlayerKart(g);
-        processKeyInputs();
+        float alpha = baseDisplay.getInterpolationAlpha();
+        markDynamicRegions(alpha);
+        compositor.compose(g, frame -> drawDynamicLayer(frame, alpha));
+    }
 
-        if (isBadWeather) weather.paintIcon(baseDisplay, g, 0, 0);
+    @Override
+    public Rectangle getDirtyRegion() {
+        return compositor.getRepaintBounds();
+    }
 
-        drawHUD(g);
+    private void drawDynamicLayer(Graphics g, float alpha) {
+        for (Player opponent : opponents) drawKart(g, opponent.getKart(), alpha);
+        drawPlayerKart(g, alpha);
+
+        if (isBadWeather) g.drawImage(weather.getImage(), 0, 0, compositor);
+
+        drawHUD(g, alpha);
 
         if (mainPlayerKart.isGoingWrongWay()) wrongWayMessage.paintIcon(baseDisplay, g, 0, 284);
         if (!raceCountdownFinished) raceCountdown[raceCountdownStage].paintIcon(baseDisplay, g, 0, 0);
     }
 
+    // Everything the dynamic layer will draw this frame, so only those regions are redrawn.
+    private void markDynamicRegions(float alpha) {
+        for (Player opponent : opponents) {
+            Kart kart = opponent.getKart();
+            compositor.addDynamicRegion((int) kart.getInterpolatedX(alpha), (int) kart.getInterpolatedY(alpha),
+                    kart.getImageWidth(), kart.getImageHeight());
+        }
+        int playerX = getPlayerKartDrawX(alpha);
+        int playerY = getPlayerKartDrawY(alpha);
+        compositor.addDynamicRegion(playerX, playerY, mainPlayerKart.getImageWidth(), mainPlayerKart.getImageHeight());
+        compositor.addDynamicRegion(playerX, playerY, playerPointer.getIconWidth(), playerPointer.getIconHeight());
+
+        // HUD lap and game time areas.
+        compositor.addDynamicRegion(0, 600, 189, 50);
+        compositor.addDynamicRegion(375, 0, 100, 50);
+        // The standings only change when a kart overtakes, and karts passing under them redraw them anyway.
+        if (standingsPanel.needsRedraw(activeGame.getRaceStandings())) {
+            compositor.addDynamicRegion(STANDINGS_X, 0, standingsPanel.getWidth(), standingsPanel.getHeight());
+        }
+
+        if (mainPlayerKart.isGoingWrongWay()) {
+            compositor.addDynamicRegion(0, 284, wrongWayMessage.getIconWidth(), wrongWayMessage.getIconHeight());
+        }
+        // Weather and the countdown cover the whole track.
+        if (isBadWeather) compositor.addDynamicRegion(0, 0, weather.getIconWidth(), weather.getIconHeight());
+        if (!raceCountdownFinished) {
+            ImageIcon countdown = raceCountdown[raceCountdownStage];
+            compositor.addDynamicRegion(0, 0, countdown.getIconWidth(), countdown.getIconHeight());
+        }
+    }
+
+    // The countdown follows the start time scheduled by the server, so all players start together.
     private void updateRaceCountdown() {
-        if (raceCountdownStage == 2) {
-            hasRaceStarted = true;
-            activeGame.startGameTimer();
+        if (raceCountdownFinished) return;
+
+        long raceCountdownStartTime = connection.getCountdownStartTime();
+        long countdownTime = ClockSync.getLocalTime() - raceCountdownStartTime;
+        if (countdownTime < 0) return;
+
+        if (!raceCountdownStarted) {
+            raceCountdownStarted = true;
+            AudioManager.playSound("RACE_COUNTDOWN", false);
         }
-        else if (raceCountdownStage + 1 == raceCountdown.length) {
-            raceCountdownFinished = true;
-            raceCountdownTimer.stop();
+
+        int stage = (int) (countdownTime / COUNTDOWN_STAGE_TIME);
+        if (stage >= RACE_START_STAGE && !hasRaceStarted) {
+            hasRaceStarted = true;
+            activeGame.startGameTimer(raceCountdownStartTime + RACE_START_STAGE * COUNTDOWN_STAGE_TIME);
+            kartUpdateFilter.forceNextUpdate();
         }
-        raceCountdownStage++;
+        if (stage >= raceCountdown.length) raceCountdownFinished = true;
+        else raceCountdownStage = stage;
     }
 
+    // Called from the connection thread, the opponent is moved on the next simulation step.
     public void updateOpponentKart(int kartNumber, float rotation, float speed, float positionX, float positionY) {
-        for (Player opponent : opponents) {
-            if (opponent.getPlayerNumber() == kartNumber) {
-                Kart kart = opponent.getKart();
-                kart.setRotation(rotation);
-                kart.setSpeed(speed);
-                kart.setPosition(positionX, positionY);
-                break;
-            }
-        }
+        RemoteKart remoteKart = activeGame.getRemoteKart(kartNumber);
+        if (remoteKart != null) remoteKart.receive(rotation, speed, positionX, positionY);
     }
 
-    private void drawRacetrack(Graphics g) {
-        racetrackBackground.paintIcon(baseDisplay, g, 0,0);
-        spectators0.paintIcon(baseDisplay, g, 173, 59);
-        spectators1.paintIcon(baseDisplay, g, 214, 449);
-        spectators2.paintIcon(baseDisplay, g, 571, 447);
+    // Called from the connection thread when the server rejects the player's kart state.
+    public void correctPlayerKart(int inputSequence, float rotation, float speed, float positionX, float positionY) {
+        kartPredictor.queueCorrection(inputSequence, rotation, speed, positionX, positionY);
     }
 
-    private void updatePlayerKart(Graphics g) {
+    private void updatePlayerKart() {
         Kart kart = mainPlayer.getKart();
+        kart.savePreviousPosition();
+        kartPredictor.reconcile(kart);
         if (kart.isMoving()) kart.reduceSpeed();
+        kart.updatePosition();
         if (!activeGame.isKartValid(kart)) suspendForwardMovement();
-        drawSingleKart(g, kart);
+        kart.updateImage();
     }
 
-    private void updateOtherKarts(Graphics g) {
-        for (Player opponent : opponents) {
-            Kart kart = opponent.getKart();
-            activeGame.checkCollisionWithOtherKart(kart);
-            drawSingleKart(g, kart);
-        }
+    private void updateOtherKarts() {
+        for (Player opponent : opponents) opponent.getKart().savePreviousPosition();
+        activeGame.updateRemoteKarts();
     }
 
-    private void drawSingleKart(Graphics g, Kart kart) {
-        kart.updatePosition();
-        kart.updateImage();
-        kart.getImage().paintIcon(baseDisplay, g, (int) kart.getPosition().x, (int) kart.getPosition().y);
+    private void drawKart(Graphics g, Kart kart, float alpha) {
+        kart.draw(g, (int) kart.getInterpolatedX(alpha), (int) kart.getInterpolatedY(alpha));
     }
 
-    private void drawHUD(Graphics g) {
-        // Black semi-transparent.
-        g.setColor(new Color(0,0,0, 128));
+    private void drawPlayerKart(Graphics g, float alpha) {
+        mainPlayerKart.draw(g, getPlayerKartDrawX(alpha), getPlayerKartDrawY(alpha));
+    }
+
+    // The player's kart is drawn with any remaining correction error so corrections don't snap.
+    private int getPlayerKartDrawX(float alpha) {
+        return (int) (mainPlayerKart.getInterpolatedX(alpha) + kartPredictor.getSmoothingX());
+    }
+
+    private int getPlayerKartDrawY(float alpha) {
+        return (int) (mainPlayerKart.getInterpolatedY(alpha) + kartPredictor.getSmoothingY());
+    }
+
+    private void drawHUD(Graphics g, float alpha) {
+        long hudStartTime = System.nanoTime();
+        g.setColor(HUD_BACKGROUND);
 
         // Player lap area, lower left.
         g.fillRect(0, 600, 189, 50);
@@ -207,26 +316,33 @@ public class GameDisplay implements Display {
 
         // Game time area, top central.
         g.fillRect(375, 0, 100, 50);
-        g.setColor(Color.white);
-        g.setFont(new Font("Arial", Font.BOLD, 30));
-        g.drawString(activeGame.getGameTimeFormatted(), 386, 36);
+        gameTimeRenderer.drawTime(g, activeGame.getGameTime(), 386, 36);
+
+        // Race standings, top right.
+        standingsPanel.draw(g, activeGame.getRaceStandings(), mainPlayerKart, STANDINGS_X, 0);
 
         // Display an arrow above the player's head for easier identification.
-        playerPointer.paintIcon(baseDisplay, g, (int) mainPlayerKart.getPosition().x, (int) mainPlayerKart.getPosition().y);
+        g.drawImage(playerPointer.getImage(), getPlayerKartDrawX(alpha), getPlayerKartDrawY(alpha), compositor);
+        baseDisplay.getFrameProfiler().record(FrameProfiler.HUD, System.nanoTime() - hudStartTime);
     }
 
     public void sendPlayerToMenu() {
         baseDisplay.setCurrentDisplay(new MenuDisplay());
     }
 
-    private void processKeyInputs() {
-        Kart kart = mainPlayer.getKart();
-
-        if (keyRightActive) kart.updateRotation(RIGHT);
-        else if (keyLeftActive) kart.updateRotation(LEFT);
+    private int readKeyInputs() {
+        int input = 0;
+        if (keyRightActive) input |= Kart.INPUT_RIGHT;
+        if (keyLeftActive) input |= Kart.INPUT_LEFT;
+        if (keyForwardActive) input |= Kart.INPUT_FORWARD;
+        if (keyBackwardActive) input |= Kart.INPUT_BACKWARD;
+        return input;
+    }
 
-        if (keyForwardActive) kart.updateSpeed(FORWARD);
-        else if (keyBackwardActive) kart.updateSpeed(BACKWARD);
+    // Inputs are applied immediately and remembered in case the server corrects the kart.
+    private void processInput(int input) {
+        kartPredictor.recordInput(input);
+        mainPlayer.getKart().applyInput(input);
     }
 
     @Override
@@ -6,7 +6,6 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Objects;
 
 /**
  * The {@code GameJoinDisplay} class is a concrete implementation
@@ -68,12 +67,12 @@ public class GameJoinDisplay implements Display {
 
     private void loadImages() {
         try {
-            gameJoinBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameJoinBackground.png")));
-            back = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonBack.png")));
-            joinLocal = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonJoinLocal.png")));
-            joinOnline = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonJoinOnline.png")));
-            joinHover = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/joinHover.png")));
-            loading = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/loadingSymbol.gif")));
+            gameJoinBackground = AssetCache.getImage("images/ui/bg/gameJoinBackground.png");
+            back = AssetCache.getImage("images/ui/buttonBack.png");
+            joinLocal = AssetCache.getImage("images/ui/buttonJoinLocal.png");
+            joinOnline = AssetCache.getImage("images/ui/buttonJoinOnline.png");
+            joinHover = AssetCache.getImage("images/ui/joinHover.png");
+            loading = AssetCache.getImage("images/ui/loadingSymbol.gif");
         }
         catch (NullPointerException e) {
             System.err.println("Failed to locate a necessary image file.");
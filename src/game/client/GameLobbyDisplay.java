@@ -1,5 +1,7 @@
 package game.client;
 
+import game.common.TrackData;
+
 import javax.swing.*;
 import java.awt.*;
 import java.util.*;
@@ -32,7 +34,7 @@ public class GameLobbyDisplay implements Display {
 
     // Image sets.
     private final ImageIcon[] allOptionsKart = new ImageIcon[7];
-    private final ImageIcon[] allOptionsMap = new ImageIcon[4];
+    private final ImageIcon[] allOptionsMap = new ImageIcon[TrackData.getMapCount() + 1]; // Each map, then random.
     private final ImageIcon[] allPlayerLabelsActive = new ImageIcon[6];
     private final ImageIcon[] allPlayerLabelsInactive = new ImageIcon[6];
     private final ImageIcon[] allPlayerLabelsCurrent = new ImageIcon[6];
@@ -67,32 +69,29 @@ public class GameLobbyDisplay implements Display {
     public GameLobbyDisplay() {
         baseDisplay.clearComponents();
         loadImages();
+        KartSpriteAtlas.preloadAll();
     }
 
     private void loadImages() {
         try {
-            Arrays.setAll(allOptionsKart, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/kart/kartOption" + i + ".png"))));
-            Arrays.setAll(allOptionsMap, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/racetrack/mapOption" + i + ".png"))));
-            Arrays.setAll(allPlayerLabelsActive, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/p" + (i + 1) + "Active.png"))));
-            Arrays.setAll(allPlayerLabelsInactive, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/p" + (i + 1) + "Inactive.png"))));
-            Arrays.setAll(allPlayerLabelsCurrent, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/p" + (i + 1) + "Current.png"))));
-
-            imageLobbyBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameLobbyBackground.png")));
-            imageArrowLeft = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/arrowLeft.png")));
-            imageArrowRight = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/arrowRight.png")));
-            imageBack = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonBack.png")));
-            imageReady = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/playerReady.png")));
-            imageUnready = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/playerUnready.png")));
-            imageSymbolReady = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/readySymbol.png")));
-            imageSymbolNotReady = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/notReadySymbol.png")));
-            imageSymbolReadyHidden = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/hiddenSymbol.png")));
-            imageMapLabel = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/map.png")));
-            imageInactiveKart = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/inactiveKart.png")));
+            Arrays.setAll(allOptionsKart, i -> AssetCache.getImage("images/kart/kartOption" + i + ".png"));
+            Arrays.setAll(allOptionsMap, i -> AssetCache.getImage("images/racetrack/mapOption"
+                    + (i < TrackData.getMapCount() ? i : "Random") + ".png"));
+            Arrays.setAll(allPlayerLabelsActive, i -> AssetCache.getImage("images/ui/p" + (i + 1) + "Active.png"));
+            Arrays.setAll(allPlayerLabelsInactive, i -> AssetCache.getImage("images/ui/p" + (i + 1) + "Inactive.png"));
+            Arrays.setAll(allPlayerLabelsCurrent, i -> AssetCache.getImage("images/ui/p" + (i + 1) + "Current.png"));
+
+            imageLobbyBackground = AssetCache.getImage("images/ui/bg/gameLobbyBackground.png");
+            imageArrowLeft = AssetCache.getImage("images/ui/arrowLeft.png");
+            imageArrowRight = AssetCache.getImage("images/ui/arrowRight.png");
+            imageBack = AssetCache.getImage("images/ui/buttonBack.png");
+            imageReady = AssetCache.getImage("images/ui/playerReady.png");
+            imageUnready = AssetCache.getImage("images/ui/playerUnready.png");
+            imageSymbolReady = AssetCache.getImage("images/ui/readySymbol.png");
+            imageSymbolNotReady = AssetCache.getImage("images/ui/notReadySymbol.png");
+            imageSymbolReadyHidden = AssetCache.getImage("images/ui/hiddenSymbol.png");
+            imageMapLabel = AssetCache.getImage("images/ui/map.png");
+            imageInactiveKart = AssetCache.getImage("images/ui/inactiveKart.png");
 
             Arrays.setAll(allDisplayedPlayerLabels, i -> allDisplayedPlayerLabels[i] = allPlayerLabelsInactive[i]);
             Arrays.setAll(allDisplayedPlayerKarts, i -> allDisplayedPlayerKarts[i] = imageInactiveKart);
@@ -157,9 +156,19 @@ public class GameLobbyDisplay implements Display {
     }
 
     public void updateSelectedMap(int selectedMap) {
+        this.selectedMap = selectedMap;
         imageMap = allOptionsMap[selectedMap];
     }
 
+    // Puts the player's own choices back to the server's, after it dropped changes sent too quickly.
+    public void resyncPlayer(int kartChoice, boolean isReady) {
+        int playerIndex = playerNumber - 1;
+
+        playerSelectedKart = kartChoice;
+        allDisplayedPlayerKarts[playerIndex] = allOptionsKart[kartChoice];
+        if (isReady != isPlayerReady) setPlayerReadyState(isReady);
+    }
+
     public void updateWeather(boolean weather) {
         isBadWeather = weather;
     }
@@ -272,24 +281,26 @@ public class GameLobbyDisplay implements Display {
     }
 
     private void togglePlayerReadyState() {
+        setPlayerReadyState(!isPlayerReady);
+        connection.sendReadyState(isPlayerReady);
+    }
+
+    private void setPlayerReadyState(boolean isReady) {
         int playerIndex = playerNumber - 1;
 
-        if (isPlayerReady) {
-            // Allow the player to change their choice again.
-            isPlayerReady = false;
-            buttonReady.setIcon(imageReady);
-            allDisplayedPlayerReadyStates[playerIndex] = imageSymbolNotReady;
-            togglePlayerLockedButtonVisibility(true);
-        }
-        else {
+        isPlayerReady = isReady;
+        if (isReady) {
             // Prevent the player from changing their choice.
-            isPlayerReady = true;
             buttonReady.setIcon(imageUnready);
             allDisplayedPlayerReadyStates[playerIndex] = imageSymbolReady;
             togglePlayerLockedButtonVisibility(false);
         }
-
-        connection.sendReadyState(isPlayerReady);
+        else {
+            // Allow the player to change their choice again.
+            buttonReady.setIcon(imageReady);
+            allDisplayedPlayerReadyStates[playerIndex] = imageSymbolNotReady;
+            togglePlayerLockedButtonVisibility(true);
+        }
     }
 
     private void togglePlayerLockedButtonVisibility(boolean isVisible) {
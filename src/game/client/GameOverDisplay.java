@@ -3,7 +3,6 @@ package game.client;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * The {@code GameOverDisplay} class is a concrete implementation
@@ -18,6 +17,7 @@ public class GameOverDisplay implements Display {
     // Constants.
     private static final int RACE_WON = 0;
     private static final int KART_CRASHED = 1;
+    private static final Font LEADERBOARD_FONT = new Font("Arial", Font.BOLD, 14);
 
     // Buttons.
     private JButton returnToMenuButton;
@@ -31,6 +31,8 @@ public class GameOverDisplay implements Display {
     private Game currentGame;
     private final List<Player> playersInGame;
 
+    private final ServerHandler connection = ServerManager.getHandler();
+
     // Constructor.
     public GameOverDisplay(Game currentGame) {
         baseDisplay.clearComponents();
@@ -38,6 +40,7 @@ public class GameOverDisplay implements Display {
         playersInGame = currentGame.getOpponents();
         loadImages();
         addDisplayComponents();
+        connection.requestLeaderboard(currentGame.getTrackType(), currentGame.getWeatherForecast());
         AudioManager.stopMusic();
 
         // Play a different sound depending on if the player won or lost.
@@ -47,8 +50,8 @@ public class GameOverDisplay implements Display {
 
     private void loadImages() {
         try {
-            returnToMenu = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMainMenu.png")));
-            gameOverBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameOverBackground" + currentGame.getGameEndType() + ".png")));
+            returnToMenu = AssetCache.getImage("images/ui/buttonMainMenu.png");
+            gameOverBackground = AssetCache.getImage("images/ui/bg/gameOverBackground" + currentGame.getGameEndType() + ".png");
             racetrackBackground = currentGame.getRacetrack().getImage();
         }
         catch (NullPointerException e) {
@@ -68,6 +71,18 @@ public class GameOverDisplay implements Display {
         updatePlayerKart(g);
         updateOtherKarts(g);
         gameOverBackground.paintIcon(baseDisplay, g, 0, 0);
+        drawLeaderboard(g);
+    }
+
+    // Best times for this map and weather, shown once the server has replied.
+    private void drawLeaderboard(Graphics g) {
+        List<String> leaderboard = connection.getLeaderboard();
+        if (leaderboard.isEmpty()) return;
+
+        g.setColor(Color.white);
+        g.setFont(LEADERBOARD_FONT);
+        g.drawString("Best times", 20, 30);
+        for (int i = 0; i < leaderboard.size(); i++) g.drawString(leaderboard.get(i), 20, 50 + i * 18);
     }
 
     private void updatePlayerKart(Graphics g) {
@@ -76,17 +91,18 @@ public class GameOverDisplay implements Display {
         drawSingleKart(g, mainKart);
     }
 
+    // Opponents stay where they were last seen, as no more states arrive once the game is over.
     private void updateOtherKarts(Graphics g) {
         for (Player player : playersInGame) {
             Kart kart = player.getKart();
-            drawSingleKart(g, kart);
+            kart.draw(g, (int) kart.getPosition().x, (int) kart.getPosition().y);
         }
     }
 
     private void drawSingleKart(Graphics g, Kart kart) {
         kart.updatePosition();
         kart.updateImage();
-        kart.getImage().paintIcon(baseDisplay, g, (int) kart.getPosition().x, (int) kart.getPosition().y);
+        kart.draw(g, (int) kart.getPosition().x, (int) kart.getPosition().y);
     }
 
     @Override
@@ -3,7 +3,6 @@ package game.client;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * The {@code GamePauseDisplay} class is a concrete implementation
@@ -47,11 +46,11 @@ public class GamePauseDisplay implements Display {
 
     private void loadImages() {
         try {
-            gamePausedBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gamePausedBackground.png")));
-            returnToMenu = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMainMenu.png")));
-            resumeGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonResume.png")));
-            muteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMute.png")));
-            unmuteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonUnmute.png")));
+            gamePausedBackground = AssetCache.getImage("images/ui/bg/gamePausedBackground.png");
+            returnToMenu = AssetCache.getImage("images/ui/buttonMainMenu.png");
+            resumeGame = AssetCache.getImage("images/ui/buttonResume.png");
+            muteGame = AssetCache.getImage("images/ui/buttonMute.png");
+            unmuteGame = AssetCache.getImage("images/ui/buttonUnmute.png");
             racetrackBackground = currentGame.getRacetrack().getImage();
         }
         catch (NullPointerException e) {
@@ -66,33 +65,23 @@ public class GamePauseDisplay implements Display {
         returnToMenuButton = baseDisplay.addButton(returnToMenu, 354, 500);
     }
 
+    // The race carries on in the background while paused, through the same steps as while racing.
+    @Override
+    public void step() {
+        suspendedGameDisplay.stepWhilePaused();
+    }
+
     @Override
     public void update(Graphics g) {
+        float alpha = baseDisplay.getInterpolationAlpha();
         racetrackBackground.paintIcon(baseDisplay, g, 0, 0);
-        updatePlayerKart(g);
-        updateOtherKarts(g);
+        drawKart(g, currentGame.getMainPlayer().getKart(), alpha);
+        for (Player player : playersInGame) drawKart(g, player.getKart(), alpha);
         gamePausedBackground.paintIcon(baseDisplay, g, 0, 0);
     }
 
-    private void updatePlayerKart(Graphics g) {
-        Kart mainKart = currentGame.getMainPlayer().getKart();
-        if (mainKart.isMoving()) mainKart.reduceSpeed();
-        if (!currentGame.isKartValid(mainKart)) suspendedGameDisplay.suspendForwardMovement();
-        drawSingleKart(g, mainKart);
-    }
-
-    private void updateOtherKarts(Graphics g) {
-        for (Player player : playersInGame) {
-            Kart kart = player.getKart();
-            currentGame.checkCollisionWithOtherKart(kart);
-            drawSingleKart(g, kart);
-        }
-    }
-
-    private void drawSingleKart(Graphics g, Kart kart) {
-        kart.updatePosition();
-        kart.updateImage();
-        kart.getImage().paintIcon(baseDisplay, g, (int) kart.getPosition().x, (int) kart.getPosition().y);
+    private void drawKart(Graphics g, Kart kart, float alpha) {
+        kart.draw(g, (int) kart.getInterpolatedX(alpha), (int) kart.getInterpolatedY(alpha));
     }
 
     @Override
@@ -0,0 +1,101 @@
+package game.client;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The {@code HudTextRenderer} class draws the race timer from a strip of
+ * pre-rendered digit and colon glyphs. The glyphs are laid out once, and the
+ * timer is only recomposed from them when the displayed second changes, so
+ * each frame just copies one small image and allocates nothing.
+ */
+public class HudTextRenderer {
+
+    // Constants.
+    private static final String GLYPHS     = "0123456789:";
+    private static final int COLON         = 10;
+    private static final int MAX_DIGITS    = 10; // Enough for any number of minutes.
+    private static final int TIMER_DIGITS  = 6; // Room for up to four digits of minutes before the timer is clipped.
+
+    // Object properties.
+    private final BufferedImage glyphStrip;
+    private final BufferedImage[] glyphImages = new BufferedImage[GLYPHS.length()]; // Views into the strip.
+    private final int[] glyphX = new int[GLYPHS.length()];
+    private final int[] glyphWidths = new int[GLYPHS.length()];
+    private final int ascent;
+    private final int[] digits = new int[MAX_DIGITS];
+
+    // The timer as last composed.
+    private final BufferedImage timerImage;
+    private int timerSeconds = -1;
+
+    // Constructor.
+    public HudTextRenderer(Font font, Color colour) {
+        // A scratch image is needed to measure the font before the strip can be sized.
+        var scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D scratchGraphics = scratch.createGraphics();
+        FontMetrics metrics = scratchGraphics.getFontMetrics(font);
+        scratchGraphics.dispose();
+
+        int stripWidth = 0;
+        int maxDigitWidth = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            glyphX[i] = stripWidth;
+            glyphWidths[i] = metrics.charWidth(GLYPHS.charAt(i));
+            stripWidth += glyphWidths[i];
+            if (i != COLON) maxDigitWidth = Math.max(maxDigitWidth, glyphWidths[i]);
+        }
+        ascent = metrics.getAscent();
+        int glyphHeight = metrics.getAscent() + metrics.getDescent();
+
+        glyphStrip = new BufferedImage(stripWidth, glyphHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = glyphStrip.createGraphics();
+        g.setFont(font);
+        g.setColor(colour);
+        for (int i = 0; i < GLYPHS.length(); i++) g.drawString(GLYPHS.substring(i, i + 1), glyphX[i], ascent);
+        g.dispose();
+
+        // Drawing whole images is cheaper than drawing sub-regions of the strip.
+        for (int i = 0; i < GLYPHS.length(); i++) glyphImages[i] = glyphStrip.getSubimage(glyphX[i], 0, glyphWidths[i], glyphHeight);
+
+        timerImage = new BufferedImage(maxDigitWidth * TIMER_DIGITS + glyphWidths[COLON], glyphHeight, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // Draws a time in microseconds as "mm:ss", with the text baseline at y as with drawString.
+    public void drawTime(Graphics g, long time, int x, int y) {
+        int totalSeconds = (int) (time / 1_000_000);
+        if (totalSeconds != timerSeconds) composeTimer(totalSeconds);
+        g.drawImage(timerImage, x, y - ascent, null);
+    }
+
+    private void composeTimer(int totalSeconds) {
+        timerSeconds = totalSeconds;
+        Graphics2D g = timerImage.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, timerImage.getWidth(), timerImage.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+
+        int x = drawNumber(g, totalSeconds / 60, 0, 0);
+        x = drawGlyph(g, COLON, x, 0);
+        drawNumber(g, totalSeconds % 60, x, 0);
+        g.dispose();
+    }
+
+    // Numbers are padded to at least two digits.
+    private int drawNumber(Graphics g, int number, int x, int top) {
+        int digitCount = 0;
+        do {
+            digits[digitCount++] = number % 10;
+            number /= 10;
+        } while (number > 0 && digitCount < MAX_DIGITS);
+        if (digitCount == 1) digits[digitCount++] = 0;
+
+        for (int i = digitCount - 1; i >= 0; i--) x = drawGlyph(g, digits[i], x, top);
+        return x;
+    }
+
+    private int drawGlyph(Graphics g, int glyph, int x, int top) {
+        g.drawImage(glyphImages[glyph], x, top, null);
+        return x + glyphWidths[glyph];
+    }
+}
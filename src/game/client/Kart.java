@@ -1,10 +1,10 @@
 package game.client;
 
-import javax.swing.*;
+import game.common.KartPhysics;
+import game.common.TrackData;
+
 import java.awt.*;
-import java.awt.geom.Area;
 import java.awt.geom.Point2D;
-import java.util.*;
 
 /**
  * The {@code Kart} class controls updating and processing
@@ -20,13 +20,17 @@ public class Kart {
     private static final int TURN_CIRCLE    = 160;
     private static final int HIT_BOX_BUFFER = 15;
     private static final float SLOW_RATE    = 0.025f;
-    private static final int BOTTOM         = 0;
-    private static final int RIGHT          = 1;
-    private static final int TOP            = 2;
-    private static final int LEFT           = 3;
+    private static final int DIRECTIONS     = 16;
+    private static final int MAX_SWEEP      = 16; // Further than a kart can drive in a step, so anything more was a jump.
+
+    // Input flags for a single frame of player control.
+    public static final int INPUT_RIGHT     = KartPhysics.INPUT_RIGHT;
+    public static final int INPUT_LEFT      = KartPhysics.INPUT_LEFT;
+    public static final int INPUT_FORWARD   = KartPhysics.INPUT_FORWARD;
+    public static final int INPUT_BACKWARD  = KartPhysics.INPUT_BACKWARD;
 
-    // Image sets.
-    private final ImageIcon[] kartSprites = new ImageIcon[16];
+    // Rotation frames shared by every kart of the same style.
+    private final KartSpriteAtlas sprites;
 
     // Object properties.
     private final int kartNumber;
@@ -34,12 +38,13 @@ public class Kart {
     private float rotation;
     private float speed;
     private final Point2D.Float position = new Point2D.Float();
+    private final Point2D.Float previousPosition = new Point2D.Float();
     private int kartType;
-    private ImageIcon image;
     private final Player owner;
     private final Rectangle hitBox;
+    private final Rectangle previousHitBox;
+    private final Rectangle sweepBox = new Rectangle(); // Reused to test points along each move.
     private final Racetrack racetrack;
-    private final Area track;
     private boolean kartCrashed;
 
     // Property access methods.
@@ -47,8 +52,9 @@ public class Kart {
     public float getSpeed()             { return speed; }
     public float getRotation()          { return rotation; }
     public int getKartNumber()          { return kartNumber; }
-    public ImageIcon getImage()         { return image; }
     public Rectangle getHitBox()        { return hitBox; }
+    public int getImageWidth()          { return sprites.getFrameWidth(); }
+    public int getImageHeight()         { return sprites.getFrameHeight(); }
     public Point2D.Float getPosition()  { return position; }
     public boolean hasCrashed()         { return kartCrashed; }
 
@@ -63,6 +69,28 @@ public class Kart {
     public void setPosition(float x, float y) {
         position.x = x;
         position.y = y;
+        hitBox.setLocation((int) x + HIT_BOX_BUFFER, (int) y + HIT_BOX_BUFFER);
+    }
+
+    // Remember where the kart was before a simulation step, so drawing can blend between steps
+    // and collisions can be tested along the whole step.
+    public void savePreviousPosition() {
+        previousPosition.setLocation(position);
+        previousHitBox.setBounds(hitBox);
+    }
+
+    // Where the hit box started this step, or where it is now if the kart jumped there, such as after a correction.
+    public Rectangle getSweepStart() {
+        int distance = Math.max(Math.abs(hitBox.x - previousHitBox.x), Math.abs(hitBox.y - previousHitBox.y));
+        return distance > MAX_SWEEP ? hitBox : previousHitBox;
+    }
+
+    public float getInterpolatedX(float alpha) {
+        return previousPosition.x + (position.x - previousPosition.x) * alpha;
+    }
+
+    public float getInterpolatedY(float alpha) {
+        return previousPosition.y + (position.y - previousPosition.y) * alpha;
     }
 
     public boolean isMoving() {
@@ -78,55 +106,97 @@ public class Kart {
     // Constructor.
     public Kart(int startDirection, Point startPosition, Player owner, int kartType, Racetrack racetrack) {
         this.racetrack = racetrack;
-        track = racetrack.getPlayableArea();
         this.kartType = kartType;
-
-        loadImages();
+        sprites = KartSpriteAtlas.getAtlas(kartType);
 
         // Allocate kart information.
         this.owner  = owner;
         kartNumber  = owner.getPlayerNumber();
         direction   = startDirection;
         rotation    = (float) direction * 10;
-        image       = kartSprites[direction];
         position.setLocation(startPosition);
+        previousPosition.setLocation(startPosition);
 
         // Create a forgiving kart bounds area that is smaller than the
         // image for more accurate collision detection and leniency.
         hitBox = new Rectangle((int) (position.x + HIT_BOX_BUFFER), (int) (position.y + HIT_BOX_BUFFER),
-                image.getIconWidth() - HIT_BOX_BUFFER * 2, image.getIconHeight() - HIT_BOX_BUFFER * 2);
+                sprites.getFrameWidth() - HIT_BOX_BUFFER * 2, sprites.getFrameHeight() - HIT_BOX_BUFFER * 2);
+        previousHitBox = new Rectangle(hitBox);
+        sweepBox.setSize(hitBox.getSize());
     }
 
-    private void loadImages() {
-        try {
-            Arrays.setAll(kartSprites, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/kart/style" + kartType + "/kart" + i + ".png"))));
-        }
-        catch (NullPointerException e) {
-            System.err.println("Failed to locate a necessary image file.");
-        }
+    // Takes on the state of a deterministic simulation of this kart, as used in lockstep races.
+    public void applyPhysics(KartPhysics physics) {
+        rotation = (float) physics.getRotation() / KartPhysics.ROTATION_UNITS;
+        speed = KartPhysics.toPixels(physics.getSpeed());
+        setPosition(KartPhysics.toPixels(physics.getPositionX()), KartPhysics.toPixels(physics.getPositionY()));
+        kartCrashed = physics.hasCrashed();
+        updateImage();
+    }
+
+    public void draw(Graphics g, int x, int y) {
+        sprites.drawFrame(g, direction, x, y);
     }
 
     public void updatePosition() {
-        float newPositionX = position.x + getSpeedMultiplierX();
-        float newPositionY = position.y + getSpeedMultiplierY();
+        updatePosition(true);
+    }
+
+    // Replays one frame of movement for prediction, without side effects like sounds.
+    public void replayInput(int input) {
+        if (isMoving()) reduceSpeed();
+        updatePosition(false);
+        applyInput(input);
+    }
+
+    public void applyInput(int input) {
+        final int right = 0;
+        final int left = 1;
+
+        if ((input & INPUT_RIGHT) != 0) updateRotation(right);
+        else if ((input & INPUT_LEFT) != 0) updateRotation(left);
 
-        hitBox.setLocation((int) newPositionX + HIT_BOX_BUFFER,(int) newPositionY + HIT_BOX_BUFFER);
+        if ((input & INPUT_FORWARD) != 0) updateSpeed(1);
+        else if ((input & INPUT_BACKWARD) != 0) updateSpeed(-1);
+    }
 
-        // Collision detection with track boundaries.
-        if (isNewPositionOnTrack()) {
+    // The kart stops where it would first leave the track, so it can't skip over a boundary however far it moves.
+    private void updatePosition(boolean playSounds) {
+        float moveX = getSpeedMultiplierX();
+        float moveY = getSpeedMultiplierY();
+        float timeOfImpact = getTrackImpactTime(moveX, moveY);
+
+        if (timeOfImpact == SweptCollision.NO_IMPACT) {
             kartCrashed = false;
-            position.setLocation(newPositionX, newPositionY);
+            setPosition(position.x + moveX, position.y + moveY);
+        }
+        else {
+            setPosition(position.x + moveX * timeOfImpact, position.y + moveY * timeOfImpact);
+            crash(playSounds);
+        }
+    }
+
+    // Steps along the move no more than a pixel at a time, as the track edge is only exact to a pixel.
+    private float getTrackImpactTime(float moveX, float moveY) {
+        int steps = Math.max(1, (int) Math.ceil(Math.max(Math.abs(moveX), Math.abs(moveY))));
+        for (int step = 1; step <= steps; step++) {
+            float time = (float) step / steps;
+            sweepBox.setLocation((int) (position.x + moveX * time) + HIT_BOX_BUFFER, (int) (position.y + moveY * time) + HIT_BOX_BUFFER);
+            if (!racetrack.isOnTrack(sweepBox)) return (float) (step - 1) / steps;
         }
+        return SweptCollision.NO_IMPACT;
     }
 
     public boolean isNewPositionOnTrack() {
-        if (track.contains(hitBox)) return true;
+        if (racetrack.isOnTrack(hitBox)) return true;
+        crash(true);
+        return false;
+    }
 
+    private void crash(boolean playSounds) {
         kartCrashed = true;
         speed = -0.5f; // Bounce off the boundary.
-        AudioManager.playSound("KART_COLLISION", false);
-        return false;
+        if (playSounds) AudioManager.playSound("KART_COLLISION", false);
     }
 
     private float getSpeedMultiplierX() {
@@ -168,7 +238,6 @@ public class Kart {
 
     public void updateImage() {
         direction = (int) rotation / 10;
-        image = kartSprites[direction];
     }
 
     public void updateSpeed(int speedDirection) {
@@ -178,42 +247,13 @@ public class Kart {
         else if (speed < SPEED_MIN) speed = SPEED_MIN;
     }
 
+    // Going the wrong way is facing more than a right angle from the racetrack's direction of travel,
+    // so that driving forward would lose progress around the lap.
     public boolean isGoingWrongWay() {
-        if (isOnBottomTrack() && isFacingLeft()) return true;
-        else if (isOnRightTrack() && isFacingDown()) return true;
-        else if (isOnTopTrack() && isFacingRight()) return true;
-        else return isOnLeftTrack() && isFacingUp();
-    }
-
-    private boolean isFacingLeft() {
-        return direction <= 15 && direction >= 9;
-    }
-
-    private boolean isFacingDown() {
-        return direction <= 11 && direction >= 5;
-    }
-
-    private boolean isFacingRight() {
-        return direction <= 7 && direction >= 1;
-    }
-
-    private boolean isFacingUp() {
-        return (direction <= 3 && direction >= 0) || (direction <= 15 && direction >= 13);
-    }
-
-    private boolean isOnBottomTrack() {
-        return position.y + HIT_BOX_BUFFER >= racetrack.getInnerBounds(BOTTOM).y;
-    }
-
-    private boolean isOnRightTrack() {
-        return position.x + HIT_BOX_BUFFER >= racetrack.getInnerBounds(RIGHT).x;
-    }
-
-    private boolean isOnTopTrack() {
-        return position.y - HIT_BOX_BUFFER <= racetrack.getInnerBounds(TOP).y;
-    }
+        int travelDirection = racetrack.getTrackData().getTravelDirection((int) hitBox.getCenterX(), (int) hitBox.getCenterY());
+        if (travelDirection == TrackData.NO_DIRECTION) return false;
 
-    private boolean isOnLeftTrack() {
-        return position.x - HIT_BOX_BUFFER <= racetrack.getInnerBounds(LEFT).x;
+        int turn = Math.floorMod(direction - travelDirection, DIRECTIONS);
+        return turn > DIRECTIONS / 4 && turn < DIRECTIONS * 3 / 4;
     }
 }
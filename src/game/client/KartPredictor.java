@@ -0,0 +1,98 @@
+package game.client;
+
+/**
+ * The {@code KartPredictor} class keeps the player's kart responsive while the
+ * server remains in control of its movement. Each frame of input is applied
+ * straight away and remembered in a ring buffer under a sequence number.
+ * When the server corrects the kart, the kart is rewound to the corrected state
+ * and the inputs the server had not yet seen are replayed on top of it.
+ */
+public class KartPredictor {
+
+    // Constants.
+    private static final int CAPACITY           = 128;
+    private static final float SNAP_DISTANCE    = 25f;
+    private static final float SMOOTHING_RATE   = 0.15f;
+    private static final float SETTLED_ERROR    = 0.1f;
+
+    // Input ring, indexed by sequence % CAPACITY.
+    private final int[] inputs = new int[CAPACITY];
+    private int latestSequence;
+
+    // Most recent correction from the server, waiting to be applied.
+    private boolean isCorrectionPending;
+    private int correctionSequence;
+    private float correctionRotation;
+    private float correctionSpeed;
+    private float correctionPositionX;
+    private float correctionPositionY;
+
+    // Remaining visual error being smoothed away.
+    private float smoothingX;
+    private float smoothingY;
+
+    // Property access methods.
+    public int getLatestSequence()  { return latestSequence; }
+    public float getSmoothingX()    { return smoothingX; }
+    public float getSmoothingY()    { return smoothingY; }
+
+    public int recordInput(int input) {
+        latestSequence++;
+        inputs[latestSequence % CAPACITY] = input;
+        return latestSequence;
+    }
+
+    // Called from the connection thread, the correction is applied on the next frame.
+    public synchronized void queueCorrection(int sequence, float rotation, float speed, float positionX, float positionY) {
+        isCorrectionPending = true;
+        correctionSequence = sequence;
+        correctionRotation = rotation;
+        correctionSpeed = speed;
+        correctionPositionX = positionX;
+        correctionPositionY = positionY;
+    }
+
+    public void reconcile(Kart kart) {
+        decaySmoothing();
+
+        synchronized (this) {
+            if (!isCorrectionPending) return;
+            isCorrectionPending = false;
+
+            float predictedX = kart.getPosition().x;
+            float predictedY = kart.getPosition().y;
+
+            // Rewind to the server's state, then replay the inputs it hadn't processed yet.
+            kart.setRotation(correctionRotation);
+            kart.setSpeed(correctionSpeed);
+            kart.setPosition(correctionPositionX, correctionPositionY);
+            kart.updateImage();
+
+            // Inputs that have fallen out of the ring can't be replayed, so just take the server's state.
+            if (latestSequence - correctionSequence < CAPACITY) {
+                for (int sequence = correctionSequence + 1; sequence <= latestSequence; sequence++) {
+                    kart.replayInput(inputs[sequence % CAPACITY]);
+                }
+            }
+
+            smoothError(predictedX - kart.getPosition().x, predictedY - kart.getPosition().y);
+        }
+    }
+
+    // Small errors are drawn as an offset that fades out, large ones snap straight to the new state.
+    private void smoothError(float errorX, float errorY) {
+        smoothingX += errorX;
+        smoothingY += errorY;
+        if (Math.abs(smoothingX) > SNAP_DISTANCE || Math.abs(smoothingY) > SNAP_DISTANCE) {
+            smoothingX = 0;
+            smoothingY = 0;
+        }
+    }
+
+    private void decaySmoothing() {
+        smoothingX -= smoothingX * SMOOTHING_RATE;
+        smoothingY -= smoothingY * SMOOTHING_RATE;
+        if (Math.abs(smoothingX) < SETTLED_ERROR) smoothingX = 0;
+        if (Math.abs(smoothingY) < SETTLED_ERROR) smoothingY = 0;
+    }
+}
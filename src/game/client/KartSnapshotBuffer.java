@@ -0,0 +1,140 @@
+package game.client;
+
+/**
+ * The {@code KartSnapshotBuffer} class holds timestamped kart states received
+ * for an opponent, so the opponent can be drawn slightly in the past by
+ * interpolating between the two snapshots either side of the render time.
+ * Snapshots are stored in a fixed-size ring so no objects are created per update,
+ * and the render delay grows or shrinks with the jitter measured between arrivals.
+ * When the snapshots run out, the newest can be carried on for a short time instead.
+ */
+public class KartSnapshotBuffer {
+
+    // Constants.
+    private static final int CAPACITY               = 32;
+    private static final int TURN_CIRCLE            = 160;
+    private static final long NANOS_PER_MILLI       = 1_000_000;
+    private static final long MIN_DELAY             = 30 * NANOS_PER_MILLI;
+    private static final long MAX_DELAY             = 200 * NANOS_PER_MILLI;
+    private static final long DELAY_MARGIN          = 5 * NANOS_PER_MILLI;
+    private static final long INITIAL_INTERVAL      = 15 * NANOS_PER_MILLI;
+    private static final long HOLD_GAP              = 100 * NANOS_PER_MILLI;
+    private static final float JITTER_FACTOR        = 3f;
+    private static final float AVERAGE_WEIGHT       = 0.1f;
+    private static final float DELAY_ADJUST_RATE    = 0.05f;
+
+    // Snapshot ring, indexed by (newest - age) % CAPACITY.
+    private final long[] times = new long[CAPACITY];
+    private final float[] rotations = new float[CAPACITY];
+    private final float[] speeds = new float[CAPACITY];
+    private final float[] positionsX = new float[CAPACITY];
+    private final float[] positionsY = new float[CAPACITY];
+    private int newest = -1;
+    private int count;
+
+    // Jitter measurements.
+    private float averageInterval = INITIAL_INTERVAL;
+    private float averageJitter;
+    private float renderDelay = MIN_DELAY;
+
+    public synchronized void add(long receiveTime, float rotation, float speed, float positionX, float positionY) {
+        if (count > 0) {
+            long interval = receiveTime - times[newest];
+
+            // The sender stays quiet while its kart is still, so a long gap is a pause rather than jitter.
+            // Hold the previous state until just before this update so movement isn't smeared across the gap.
+            if (interval > HOLD_GAP) {
+                store(receiveTime - (long) averageInterval,
+                        rotations[newest], speeds[newest], positionsX[newest], positionsY[newest]);
+            }
+            else {
+                averageJitter += (Math.abs(interval - averageInterval) - averageJitter) * AVERAGE_WEIGHT;
+                averageInterval += (interval - averageInterval) * AVERAGE_WEIGHT;
+            }
+        }
+        store(receiveTime, rotation, speed, positionX, positionY);
+    }
+
+    private void store(long time, float rotation, float speed, float positionX, float positionY) {
+        newest = (newest + 1) % CAPACITY;
+        times[newest] = time;
+        rotations[newest] = rotation;
+        speeds[newest] = speed;
+        positionsX[newest] = positionX;
+        positionsY[newest] = positionY;
+        if (count < CAPACITY) count++;
+    }
+
+    // Moves the timeline on by one frame, returning the point in the past that should be drawn.
+    public synchronized long getRenderTime(long now) {
+        adjustRenderDelay();
+        return now - (long) renderDelay;
+    }
+
+    /**
+     * Applies the state at {@code renderTime} to the kart, interpolated between the snapshots either side.
+     *
+     * @return false when there is no snapshot at or after the render time to interpolate towards.
+     */
+    public synchronized boolean interpolate(long renderTime, Kart kart) {
+        if (count == 0 || renderTime > times[newest]) return false;
+
+        // Walk back from the newest snapshot until the render time is bracketed.
+        int later = newest;
+        for (int age = 1; age < count; age++) {
+            int earlier = (newest - age + CAPACITY) % CAPACITY;
+            if (times[earlier] <= renderTime) {
+                float fraction = (float) (renderTime - times[earlier]) / (times[later] - times[earlier]);
+                applySnapshot(kart, earlier, later, fraction);
+                return true;
+            }
+            later = earlier;
+        }
+
+        // Older than anything buffered, so use the oldest snapshot.
+        applySnapshot(kart, later, later, 0);
+        return true;
+    }
+
+    /**
+     * Applies the state at {@code renderTime} to the kart by carrying the newest snapshot on
+     * with the velocity and turn rate between the newest two, for no longer than {@code horizon}.
+     *
+     * @return false when nothing has been received yet.
+     */
+    public synchronized boolean extrapolate(long renderTime, long horizon, Kart kart) {
+        if (count == 0) return false;
+        if (count == 1) {
+            applySnapshot(kart, newest, newest, 0);
+            return true;
+        }
+
+        int previous = (newest - 1 + CAPACITY) % CAPACITY;
+        long interval = times[newest] - times[previous];
+        float fraction = (interval > 0) ? (float) Math.min(renderTime - times[newest], horizon) / interval : 0;
+
+        // A fraction beyond 1 continues the straight line from the previous snapshot through the newest.
+        applySnapshot(kart, previous, newest, 1 + fraction);
+        return true;
+    }
+
+    private void adjustRenderDelay() {
+        float targetDelay = averageInterval + JITTER_FACTOR * averageJitter + DELAY_MARGIN;
+        targetDelay = Math.max(MIN_DELAY, Math.min(MAX_DELAY, targetDelay));
+        // Ease towards the target so the rendered timeline never jumps.
+        renderDelay += (targetDelay - renderDelay) * DELAY_ADJUST_RATE;
+    }
+
+    private void applySnapshot(Kart kart, int earlier, int later, float fraction) {
+        // Rotation loops back around, so interpolate the shorter way round the turn circle.
+        float rotationChange = rotations[later] - rotations[earlier];
+        if (rotationChange > TURN_CIRCLE / 2f) rotationChange -= TURN_CIRCLE;
+        else if (rotationChange < -TURN_CIRCLE / 2f) rotationChange += TURN_CIRCLE;
+
+        float rotation = (rotations[earlier] + rotationChange * fraction) % TURN_CIRCLE;
+        kart.setRotation((rotation + TURN_CIRCLE) % TURN_CIRCLE);
+        kart.setSpeed(speeds[earlier] + (speeds[later] - speeds[earlier]) * Math.min(fraction, 1));
+        kart.setPosition(positionsX[earlier] + (positionsX[later] - positionsX[earlier]) * fraction,
+                positionsY[earlier] + (positionsY[later] - positionsY[earlier]) * fraction);
+    }
+}
@@ -0,0 +1,127 @@
+package game.client;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The {@code KartSpatialHash} class finds colliding karts without testing
+ * every kart against every other. The screen is split into a grid of cells,
+ * each kart is listed in the cells its hit box covers, and only karts that
+ * share a cell have their hit boxes tested. A kart is only moved between
+ * cells when its hit box crosses into a different set of cells. Karts are
+ * listed under the whole area they swept through in the last step, so
+ * that moving karts are tested along their paths.
+ */
+public class KartSpatialHash {
+
+    // Constants.
+    private static final int CELL_SIZE  = 64; // Several hit boxes wide, so a kart covers at most four cells.
+    private static final int COLUMNS    = 14;
+    private static final int ROWS       = 11;
+
+    // Karts listed in each cell, indexed by row then column.
+    private final List<List<Entry>> cells = new ArrayList<>(COLUMNS * ROWS);
+    private final List<Entry> entries = new ArrayList<>();
+
+    // Constructor.
+    public KartSpatialHash() {
+        for (int i = 0; i < COLUMNS * ROWS; i++) cells.add(new ArrayList<>(2));
+    }
+
+    public synchronized void add(Kart kart) {
+        var entry = new Entry(kart);
+        entries.add(entry);
+        placeInCells(entry);
+    }
+
+    public synchronized void remove(Kart kart) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.kart != kart) continue;
+            removeFromCells(entry);
+            entries.remove(i);
+            return;
+        }
+    }
+
+    // Moves karts to the cells under the areas they swept through.
+    public synchronized void update() {
+        for (Entry entry : entries) {
+            Rectangle start = entry.kart.getSweepStart();
+            Rectangle end = entry.kart.getHitBox();
+            int minColumn = toColumn(Math.min(start.x, end.x));
+            int minRow = toRow(Math.min(start.y, end.y));
+            int maxColumn = toColumn(Math.max(start.x, end.x) + end.width - 1);
+            int maxRow = toRow(Math.max(start.y, end.y) + end.height - 1);
+            if (minColumn == entry.minColumn && minRow == entry.minRow
+                    && maxColumn == entry.maxColumn && maxRow == entry.maxRow) continue;
+
+            removeFromCells(entry);
+            placeInCells(entry);
+        }
+    }
+
+    // Passes every pair of karts whose hit boxes met during the step to the handler, each pair once.
+    public synchronized void findCollisions(BiConsumer<Kart, Kart> collisionHandler) {
+        for (int cell = 0; cell < cells.size(); cell++) {
+            List<Entry> cellEntries = cells.get(cell);
+            int column = cell % COLUMNS;
+            int row = cell / COLUMNS;
+
+            for (int i = 0; i < cellEntries.size(); i++) {
+                Entry first = cellEntries.get(i);
+                for (int j = i + 1; j < cellEntries.size(); j++) {
+                    Entry second = cellEntries.get(j);
+                    // Karts can share several cells, so only test them in the first one they share.
+                    if (column != Math.max(first.minColumn, second.minColumn)) continue;
+                    if (row != Math.max(first.minRow, second.minRow)) continue;
+                    if (SweptCollision.isTouching(first.kart, second.kart)) {
+                        collisionHandler.accept(first.kart, second.kart);
+                    }
+                }
+            }
+        }
+    }
+
+    private void placeInCells(Entry entry) {
+        Rectangle start = entry.kart.getSweepStart();
+        Rectangle end = entry.kart.getHitBox();
+        entry.minColumn = toColumn(Math.min(start.x, end.x));
+        entry.minRow = toRow(Math.min(start.y, end.y));
+        entry.maxColumn = toColumn(Math.max(start.x, end.x) + end.width - 1);
+        entry.maxRow = toRow(Math.max(start.y, end.y) + end.height - 1);
+
+        for (int row = entry.minRow; row <= entry.maxRow; row++) {
+            for (int column = entry.minColumn; column <= entry.maxColumn; column++) cells.get(row * COLUMNS + column).add(entry);
+        }
+    }
+
+    private void removeFromCells(Entry entry) {
+        for (int row = entry.minRow; row <= entry.maxRow; row++) {
+            for (int column = entry.minColumn; column <= entry.maxColumn; column++) cells.get(row * COLUMNS + column).remove(entry);
+        }
+    }
+
+    // Anything off screen is kept in the edge cells.
+    private static int toColumn(int x) {
+        return Math.max(0, Math.min(COLUMNS - 1, Math.floorDiv(x, CELL_SIZE)));
+    }
+
+    private static int toRow(int y) {
+        return Math.max(0, Math.min(ROWS - 1, Math.floorDiv(y, CELL_SIZE)));
+    }
+
+    private static class Entry {
+        private final Kart kart;
+        private int minColumn;
+        private int minRow;
+        private int maxColumn;
+        private int maxRow;
+
+        private Entry(Kart kart) {
+            this.kart = kart;
+        }
+    }
+}
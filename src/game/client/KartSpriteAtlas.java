@@ -0,0 +1,92 @@
+package game.client;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Objects;
+
+/**
+ * The {@code KartSpriteAtlas} class packs the rotation frames of one kart
+ * style into a single image strip. Each style is decoded once and the atlas
+ * is shared by every kart of that style, which draws its current frame as a
+ * sub-region of the strip.
+ */
+public class KartSpriteAtlas {
+
+    // Constants.
+    public static final int FRAMES      = 16;
+    private static final int STYLES     = 7;
+
+    // Atlases already loaded, indexed by kart style.
+    private static final KartSpriteAtlas[] atlases = new KartSpriteAtlas[STYLES];
+
+    // Object properties.
+    private final BufferedImage strip;
+    private final int frameWidth;
+    private final int frameHeight;
+
+    // Property access methods.
+    public int getFrameWidth()  { return frameWidth; }
+    public int getFrameHeight() { return frameHeight; }
+
+    // Constructor.
+    private KartSpriteAtlas(BufferedImage strip, int frameWidth, int frameHeight) {
+        this.strip = strip;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+    }
+
+    public static synchronized KartSpriteAtlas getAtlas(int kartType) {
+        if (atlases[kartType] == null) atlases[kartType] = load(kartType);
+        return atlases[kartType];
+    }
+
+    // Decode every style in the background while players are in the lobby, so the race starts without a pause.
+    public static void preloadAll() {
+        var loader = new Thread(() -> {
+            for (int i = 0; i < STYLES; i++) getAtlas(i);
+        }, "KartSpriteAtlas-Loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private static KartSpriteAtlas load(int kartType) {
+        var frames = new BufferedImage[FRAMES];
+        try {
+            for (int i = 0; i < FRAMES; i++) {
+                URL frameFile = KartSpriteAtlas.class.getResource("images/kart/style" + kartType + "/kart" + i + ".png");
+                frames[i] = ImageIO.read(Objects.requireNonNull(frameFile));
+            }
+        }
+        catch (NullPointerException | IOException e) {
+            System.err.println("Failed to locate a necessary image file.");
+            return new KartSpriteAtlas(null, 0, 0);
+        }
+
+        // Every frame is the same size, so lay them out side by side.
+        int frameWidth = frames[0].getWidth();
+        int frameHeight = frames[0].getHeight();
+        BufferedImage strip = createStripImage(frameWidth * FRAMES, frameHeight);
+        Graphics2D g = strip.createGraphics();
+        for (int i = 0; i < FRAMES; i++) g.drawImage(frames[i], i * frameWidth, 0, null);
+        g.dispose();
+
+        return new KartSpriteAtlas(strip, frameWidth, frameHeight);
+    }
+
+    // Match the screen's pixel format where possible so drawing needs no conversion.
+    private static BufferedImage createStripImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    public void drawFrame(Graphics g, int frame, int x, int y) {
+        if (strip == null) return;
+        int frameX = frame * frameWidth;
+        g.drawImage(strip, x, y, x + frameWidth, y + frameHeight,
+                frameX, 0, frameX + frameWidth, frameHeight, null);
+    }
+}
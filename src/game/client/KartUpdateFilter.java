@@ -0,0 +1,75 @@
+package game.client;
+
+/**
+ * The {@code KartUpdateFilter} class decides when the player's kart state
+ * is worth sending to the server. An update is only sent once the kart has
+ * moved past a dead-band threshold, when a keepalive is due, or when a
+ * discrete event such as a crash has happened.
+ */
+public class KartUpdateFilter {
+
+    // Dead-band thresholds, these can be overridden with the matching system properties.
+    private static final float POSITION_THRESHOLD   = getThreshold("pkr.send.position", 0.5f);
+    private static final float ROTATION_THRESHOLD   = getThreshold("pkr.send.rotation", 1.5f);
+    private static final float SPEED_THRESHOLD      = getThreshold("pkr.send.speed", 0.05f);
+    private static final long KEEPALIVE_INTERVAL    = Long.getLong("pkr.send.keepalive", 500) * 1_000_000;
+    private static final int TURN_CIRCLE            = 160;
+
+    // Last state sent to the server.
+    private float sentRotation;
+    private float sentSpeed;
+    private float sentPositionX;
+    private float sentPositionY;
+    private boolean sentCrashed;
+    private long sentTime;
+
+    // Object properties.
+    private boolean isUpdateForced = true;
+
+    public void forceNextUpdate() {
+        isUpdateForced = true;
+    }
+
+    public boolean shouldSend(Kart kart) {
+        long now = System.nanoTime();
+
+        boolean shouldSend = isUpdateForced
+                || kart.hasCrashed() != sentCrashed
+                || now - sentTime >= KEEPALIVE_INTERVAL
+                || hasMovedPastThresholds(kart);
+
+        if (shouldSend) recordSentState(kart, now);
+        return shouldSend;
+    }
+
+    private boolean hasMovedPastThresholds(Kart kart) {
+        float rotationChange = Math.abs(kart.getRotation() - sentRotation);
+        // Rotation loops back around, so take the shorter way round the turn circle.
+        rotationChange = Math.min(rotationChange, TURN_CIRCLE - rotationChange);
+
+        return Math.abs(kart.getPosition().x - sentPositionX) >= POSITION_THRESHOLD
+                || Math.abs(kart.getPosition().y - sentPositionY) >= POSITION_THRESHOLD
+                || rotationChange >= ROTATION_THRESHOLD
+                || Math.abs(kart.getSpeed() - sentSpeed) >= SPEED_THRESHOLD;
+    }
+
+    private void recordSentState(Kart kart, long now) {
+        sentRotation = kart.getRotation();
+        sentSpeed = kart.getSpeed();
+        sentPositionX = kart.getPosition().x;
+        sentPositionY = kart.getPosition().y;
+        sentCrashed = kart.hasCrashed();
+        sentTime = now;
+        isUpdateForced = false;
+    }
+
+    private static float getThreshold(String property, float defaultValue) {
+        try {
+            return Float.parseFloat(System.getProperty(property, String.valueOf(defaultValue)));
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + property + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package game.client;
+
+import game.common.KartPhysics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code LockstepSession} class runs a race in input lockstep. Instead of
+ * kart states, each player sends only the keys they held on each simulation
+ * tick, and every player simulates every kart from the same inputs with the
+ * deterministic {@code KartPhysics}, so all players see exactly the same race.
+ * <p>
+ * Inputs are sent a few ticks before they are used to hide the round trip
+ * to the other players, and the race waits whenever an input hasn't arrived.
+ * Each input carries the tick it's for, and is kept until that tick is
+ * simulated however far ahead it arrives, so no input is ever lost or
+ * applied to the wrong tick.
+ * <p>
+ * Every few ticks a checksum of all the karts is sent to the server, which
+ * compares the players' checksums for each tick so a desync is reported.
+ * Checkpoints and kart collisions are still checked on each player's {@code Kart}
+ * after the physics, so they aren't covered by the checksum.
+ */
+public class LockstepSession {
+
+    // Constants.
+    private static final int INPUT_DELAY        = KartPhysics.INPUT_DELAY; // Ticks between pressing a key and the kart responding.
+    private static final int INPUT_BUFFER       = 64; // Ticks of input kept per player to begin with, grown if anyone runs further ahead.
+    private static final int MAX_CATCH_UP       = 4; // Ticks simulated in one step after waiting for inputs.
+    private static final int CHECKSUM_INTERVAL  = Math.max(1, Integer.getInteger("pkr.lockstep.checksum", 8)); // Ticks between checksums.
+
+    // Object properties, by player number so every player folds the checksum in the same order.
+    private final Map<Integer, LockstepPlayer> players = new TreeMap<>();
+    private final List<LockstepPlayer> playerList = new ArrayList<>();
+    private final LockstepPlayer localPlayer;
+    private final ServerHandler connection = ServerManager.getHandler();
+    private int tick = 0; // The next tick to simulate.
+    private boolean wasLocalPlayerCrashed = false;
+
+    // Constructor.
+    public LockstepSession(Game game) {
+        localPlayer = addPlayer(game.getMainPlayer(), game.getRacetrack());
+        for (Player opponent : game.getOpponents()) addPlayer(opponent, game.getRacetrack());
+    }
+
+    private LockstepPlayer addPlayer(Player player, Racetrack racetrack) {
+        var physics = new KartPhysics(racetrack.getTrackMask(), racetrack.getStartDirection(),
+                racetrack.getStartPosition(player.getPlayerNumber()));
+        var lockstepPlayer = new LockstepPlayer(player.getKart(), physics);
+        players.put(player.getPlayerNumber(), lockstepPlayer);
+        playerList.add(lockstepPlayer);
+        return lockstepPlayer;
+    }
+
+    // Called from the connection thread as each of an opponent's inputs arrives.
+    public synchronized void receiveInput(int playerNumber, int inputTick, int input) {
+        LockstepPlayer player = players.get(playerNumber);
+        if (player == null) return;
+        if (inputTick <= player.receivedTick) {
+            System.err.println("Lockstep input from player " + playerNumber + " for tick " + inputTick + " arrived twice.");
+            return;
+        }
+        player.putInput(inputTick, input & KartPhysics.INPUT_MASK, tick);
+    }
+
+    // A player who leaves no longer holds up the race.
+    public synchronized void removePlayer(int playerNumber) {
+        LockstepPlayer player = players.remove(playerNumber);
+        if (player != null) playerList.remove(player);
+    }
+
+    // Sends the local input for a future tick, then simulates every tick all inputs have
+    // arrived for. Returns whether any karts moved.
+    public synchronized boolean step(int localInput) {
+        while (localPlayer.receivedTick < tick + INPUT_DELAY) {
+            int inputTick = localPlayer.receivedTick + 1;
+            localPlayer.putInput(inputTick, localInput, tick);
+            connection.sendKartInput(inputTick, localInput);
+        }
+
+        int simulatedTicks = 0;
+        while (simulatedTicks < MAX_CATCH_UP && isTickReady()) {
+            for (LockstepPlayer player : playerList) player.physics.step(player.getInput(tick));
+            tick++;
+            simulatedTicks++;
+            if (tick % CHECKSUM_INTERVAL == 0) connection.sendStateChecksum(tick, getStateChecksum());
+
+            // The kart stays against the wall for a few ticks, so only sound the crash as it happens.
+            boolean isLocalPlayerCrashed = localPlayer.physics.hasCrashed();
+            if (isLocalPlayerCrashed && !wasLocalPlayerCrashed) AudioManager.playSound("KART_COLLISION", false);
+            wasLocalPlayerCrashed = isLocalPlayerCrashed;
+        }
+
+        if (simulatedTicks > 0) {
+            for (LockstepPlayer player : playerList) player.kart.applyPhysics(player.physics);
+        }
+        return simulatedTicks > 0;
+    }
+
+    private boolean isTickReady() {
+        for (LockstepPlayer player : playerList) {
+            if (player.receivedTick < tick) return false;
+        }
+        return true;
+    }
+
+    // Every kart's state once the ticks before the given one are simulated, the same on every player in sync.
+    private int getStateChecksum() {
+        int checksum = tick;
+        for (Map.Entry<Integer, LockstepPlayer> player : players.entrySet()) {
+            KartPhysics physics = player.getValue().physics;
+            checksum = 31 * checksum + player.getKey();
+            checksum = 31 * checksum + physics.getRotation();
+            checksum = 31 * checksum + physics.getSpeed();
+            checksum = 31 * checksum + physics.getPositionX();
+            checksum = 31 * checksum + physics.getPositionY();
+        }
+        return checksum;
+    }
+
+    private static class LockstepPlayer {
+        private final Kart kart;
+        private final KartPhysics physics;
+        private int[] inputs = new int[INPUT_BUFFER];
+        private int[] inputTicks = new int[INPUT_BUFFER]; // The tick each slot holds, as inputs can arrive ahead of a gap.
+        private int receivedTick = INPUT_DELAY - 1; // No keys are held for the first ticks of the race.
+
+        private LockstepPlayer(Kart kart, KartPhysics physics) {
+            this.kart = kart;
+            this.physics = physics;
+            Arrays.fill(inputTicks, -1);
+        }
+
+        // Ticks before the first input have no keys held, and their slots are never written before they're used.
+        private int getInput(int inputTick) {
+            return inputs[inputTick % inputs.length];
+        }
+
+        private boolean hasInput(int inputTick) {
+            return inputTicks[inputTick % inputs.length] == inputTick;
+        }
+
+        // Keeps the input until its tick is simulated, growing the buffer rather than losing it.
+        private void putInput(int inputTick, int input, int oldestTick) {
+            if (inputTick - oldestTick >= inputs.length) grow(inputTick - oldestTick + 1, oldestTick);
+            inputs[inputTick % inputs.length] = input;
+            inputTicks[inputTick % inputs.length] = inputTick;
+            while (hasInput(receivedTick + 1)) receivedTick++;
+        }
+
+        private void grow(int neededTicks, int oldestTick) {
+            int capacity = inputs.length;
+            while (capacity < neededTicks) capacity *= 2;
+
+            int[] grownInputs = new int[capacity];
+            int[] grownInputTicks = new int[capacity];
+            Arrays.fill(grownInputTicks, -1);
+            for (int inputTick = oldestTick; inputTick < oldestTick + inputs.length; inputTick++) {
+                if (!hasInput(inputTick)) continue;
+                grownInputs[inputTick % capacity] = getInput(inputTick);
+                grownInputTicks[inputTick % capacity] = inputTick;
+            }
+            inputs = grownInputs;
+            inputTicks = grownInputTicks;
+        }
+    }
+}
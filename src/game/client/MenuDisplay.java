@@ -2,7 +2,6 @@ package game.client;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.Objects;
 
 /**
  * The {@code MenuDisplay} class is a concrete implementation
@@ -38,11 +37,11 @@ public class MenuDisplay implements Display {
 
     private void loadImages() {
         try {
-            menuBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameMenuBackground.png")));
-            gameStart = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/gameStart.png")));
-            gameExit = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/gameExit.png")));
-            muteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMute.png")));
-            unmuteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonUnmute.png")));
+            menuBackground = AssetCache.getImage("images/ui/bg/gameMenuBackground.png");
+            gameStart = AssetCache.getImage("images/ui/gameStart.png");
+            gameExit = AssetCache.getImage("images/ui/gameExit.png");
+            muteGame = AssetCache.getImage("images/ui/buttonMute.png");
+            unmuteGame = AssetCache.getImage("images/ui/buttonUnmute.png");
         }
         catch (NullPointerException e) {
             System.err.println("Failed to locate a necessary image file.");
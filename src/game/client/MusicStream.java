@@ -0,0 +1,179 @@
+package game.client;
+
+import javax.sound.sampled.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code MusicStream} class plays a music file straight from disk, so a
+ * track of any length only keeps a small ring buffer of samples in memory.
+ * <p>
+ * One background reader thread keeps the ring of every open stream topped
+ * up, while the {@link AudioMixer} takes frames out of it. Each side only
+ * moves its own position, so neither ever waits for the other. A looping
+ * stream reopens its file as soon as it reaches the end, and carries on
+ * filling the same ring, so the loop has no gap.
+ */
+public class MusicStream {
+
+    // Constants.
+    private static final int RING_FRAMES    = 1 << 15; // About 0.7s, 128KB for a stereo track.
+    private static final int RING_MASK      = RING_FRAMES - 1;
+    private static final int CHUNK_BYTES    = 16 * 1024;
+    private static final int SAMPLE_SIZE    = 16;
+    private static final long READ_INTERVAL = 20_000_000; // 20ms, far shorter than the ring takes to drain.
+
+    // Every stream the reader thread is filling.
+    private static final List<MusicStream> openStreams = new CopyOnWriteArrayList<>();
+    private static Thread readerThread;
+
+    // Object properties.
+    private final File file;
+    private final AudioFormat pcmFormat;
+    private final boolean loop;
+    private final short[] ring;
+    private final byte[] chunk = new byte[CHUNK_BYTES];
+    private int chunkBytes = 0; // Bytes of a part frame left over from the last read.
+    private AudioInputStream input;
+
+    // Positions in frames, each only moved by one thread.
+    private volatile long framesWritten = 0;
+    private volatile long framesRead = 0;
+    private volatile boolean isEnded = false;
+    private volatile boolean isClosed = false;
+
+    // Property access methods.
+    public float getSampleRate()    { return pcmFormat.getSampleRate(); }
+    public int getChannels()        { return pcmFormat.getChannels(); }
+    public boolean isFinished()     { return isEnded && framesRead == framesWritten; }
+
+    // Constructor. The file is opened by the reader thread, so this can be called from the game.
+    public MusicStream(File file, AudioFormat fileFormat, boolean loop) {
+        this.file = file;
+        this.loop = loop;
+        pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, fileFormat.getSampleRate(), SAMPLE_SIZE,
+                fileFormat.getChannels(), fileFormat.getChannels() * SAMPLE_SIZE / 8, fileFormat.getSampleRate(), false);
+        ring = new short[RING_FRAMES * fileFormat.getChannels()];
+
+        openStreams.add(this);
+        startReader();
+    }
+
+    private static synchronized void startReader() {
+        if (readerThread != null) return;
+        readerThread = new Thread(MusicStream::readLoop, "Music reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private static void readLoop() {
+        while (true) {
+            for (MusicStream stream : openStreams) stream.service();
+            LockSupport.parkNanos(READ_INTERVAL);
+        }
+    }
+
+    // Called by the mixer when it's done with the stream, the reader thread then lets go of the file.
+    public void close() {
+        isClosed = true;
+    }
+
+    // Called from the mixer thread. Copies the next frame into the array, returns false if there isn't one yet.
+    public boolean nextFrame(int[] frame) {
+        long read = framesRead;
+        if (read == framesWritten) return false;
+
+        int channels = getChannels();
+        int index = (int) (read & RING_MASK) * channels;
+        for (int channel = 0; channel < frame.length; channel++) {
+            frame[channel] = ring[index + Math.min(channel, channels - 1)]; // Mono plays on both sides.
+        }
+        framesRead = read + 1;
+        return true;
+    }
+
+    // Called from the reader thread.
+    private void service() {
+        if (isClosed) {
+            closeInput();
+            openStreams.remove(this);
+            return;
+        }
+        if (isEnded) return;
+
+        try {
+            fill();
+        }
+        catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+            System.err.println("Audio File Error: " + file.getName() + " can't be streamed, " + e.getMessage());
+            closeInput();
+            isEnded = true;
+        }
+    }
+
+    // Reads until the ring is full, reopening the file at the end when looping.
+    private void fill() throws IOException, UnsupportedAudioFileException {
+        int frameSize = pcmFormat.getFrameSize();
+        while (true) {
+            long space = RING_FRAMES - (framesWritten - framesRead);
+            int wanted = (int) Math.min(CHUNK_BYTES / frameSize, space) * frameSize - chunkBytes;
+            if (wanted <= 0) return;
+
+            if (input == null) input = openInput();
+            int bytesRead = input.read(chunk, chunkBytes, wanted);
+            if (bytesRead < 0) {
+                closeInput();
+                if (!loop) {
+                    isEnded = true;
+                    return;
+                }
+                continue;
+            }
+            chunkBytes += bytesRead;
+            writeFrames(chunkBytes / frameSize);
+        }
+    }
+
+    private void writeFrames(int frames) {
+        int channels = getChannels();
+        long written = framesWritten;
+        for (int frame = 0; frame < frames; frame++) {
+            int index = (int) ((written + frame) & RING_MASK) * channels;
+            for (int channel = 0; channel < channels; channel++) {
+                int offset = (frame * channels + channel) * 2;
+                ring[index + channel] = (short) ((chunk[offset] & 0xFF) | (chunk[offset + 1] << 8));
+            }
+        }
+
+        // Keep any part frame for the next read.
+        int usedBytes = frames * pcmFormat.getFrameSize();
+        System.arraycopy(chunk, usedBytes, chunk, 0, chunkBytes - usedBytes);
+        chunkBytes -= usedBytes;
+        framesWritten = written + frames; // Published last, so the mixer only sees complete frames.
+    }
+
+    private AudioInputStream openInput() throws IOException, UnsupportedAudioFileException {
+        AudioInputStream fileStream = AudioSystem.getAudioInputStream(file);
+        try {
+            return AudioSystem.getAudioInputStream(pcmFormat, fileStream);
+        }
+        catch (IllegalArgumentException e) {
+            fileStream.close();
+            throw e;
+        }
+    }
+
+    private void closeInput() {
+        if (input == null) return;
+        try {
+            input.close();
+        }
+        catch (IOException e) {
+            System.err.println("Audio File Error: " + file.getName() + " couldn't be closed, " + e.getMessage());
+        }
+        input = null;
+    }
+}
@@ -0,0 +1,246 @@
+package game.client;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The {@code RaceCompositor} class builds each race frame from layers, and
+ * only redraws the parts of the frame that have changed. The racetrack is
+ * drawn once into a static layer, animated decorations are redrawn at their
+ * own refresh rates, and the dynamic layer of karts and HUD is redrawn only
+ * where something was drawn this frame or the last.
+ * <p>
+ * Changed regions are kept as a reused list of rectangles, with overlapping or
+ * nearby ones merged so no part of the frame is redrawn twice, and each is
+ * redrawn on its own. Nothing is allocated for them from one frame to the next.
+ */
+public class RaceCompositor implements ImageObserver {
+
+    // Constants.
+    private static final int REPAINT_MARGIN = 8; // Room for karts to move before the next frame is composed.
+    private static final int MERGE_DISTANCE = 16; // Regions this close are redrawn as one, as each has its own overhead.
+
+    // Layers.
+    private final BufferedImage staticLayer;
+    private final BufferedImage frame;
+    private final List<Decoration> decorations = new ArrayList<>();
+
+    // Regions drawn by the dynamic layer, this frame and last.
+    private List<Rectangle> dynamicRegions = new ArrayList<>();
+    private List<Rectangle> previousDynamicRegions = new ArrayList<>();
+    private int dynamicRegionCount = 0;
+    private int previousDynamicRegionCount = 0;
+
+    // Object properties.
+    private final int width;
+    private final int height;
+    private boolean isFullRedrawNeeded = true;
+    private final RegionList dirtyRegions = new RegionList(); // Redrawn this frame.
+    private final RegionList unpresentedRegions = new RegionList(); // Composed, but outside the area last painted to screen.
+
+    // Constructor.
+    public RaceCompositor(ImageIcon background) {
+        width = background.getIconWidth();
+        height = background.getIconHeight();
+        staticLayer = createLayerImage(width, height);
+        frame = createLayerImage(width, height);
+
+        Graphics2D g = staticLayer.createGraphics();
+        g.drawImage(background.getImage(), 0, 0, null);
+        g.dispose();
+    }
+
+    private static BufferedImage createLayerImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE);
+    }
+
+    // Decorations are drawn above the racetrack and redrawn once per refresh interval.
+    public void addDecoration(ImageIcon image, int x, int y, long refreshInterval) {
+        decorations.add(new Decoration(image.getImage(), new Rectangle(x, y, image.getIconWidth(), image.getIconHeight()), refreshInterval));
+    }
+
+    // Marks a region the dynamic layer will draw into this frame.
+    public void addDynamicRegion(int x, int y, int regionWidth, int regionHeight) {
+        if (dynamicRegionCount == dynamicRegions.size()) dynamicRegions.add(new Rectangle());
+        dynamicRegions.get(dynamicRegionCount++).setBounds(x, y, regionWidth, regionHeight);
+    }
+
+    // The area to repaint on screen next frame, or null if the whole frame needs painting.
+    public Rectangle getRepaintBounds() {
+        if (isFullRedrawNeeded) return null;
+
+        var bounds = new Rectangle();
+        for (int i = 0; i < unpresentedRegions.size(); i++) {
+            Rectangle region = unpresentedRegions.get(i);
+            addToBounds(bounds, region.x, region.y, region.width, region.height);
+        }
+        for (int i = 0; i < previousDynamicRegionCount; i++) {
+            Rectangle region = previousDynamicRegions.get(i);
+            addToBounds(bounds, region.x - REPAINT_MARGIN, region.y - REPAINT_MARGIN,
+                    region.width + REPAINT_MARGIN * 2, region.height + REPAINT_MARGIN * 2);
+        }
+        long now = System.nanoTime();
+        for (Decoration decoration : decorations) {
+            if (decoration.isRefreshDue(now)) addToBounds(bounds, decoration.bounds.x, decoration.bounds.y,
+                    decoration.bounds.width, decoration.bounds.height);
+        }
+        return bounds;
+    }
+
+    private static void addToBounds(Rectangle bounds, int x, int y, int regionWidth, int regionHeight) {
+        if (bounds.isEmpty()) {
+            bounds.setBounds(x, y, regionWidth, regionHeight);
+        }
+        else {
+            bounds.add(x, y);
+            bounds.add(x + regionWidth, y + regionHeight);
+        }
+    }
+
+    // Redraws the changed regions of the frame, then draws the frame to the screen.
+    public void compose(Graphics g, Consumer<Graphics2D> dynamicLayer) {
+        collectDirtyRegions();
+
+        if (dirtyRegions.size() > 0) {
+            Graphics2D frameGraphics = frame.createGraphics();
+            for (int i = 0; i < dirtyRegions.size(); i++) {
+                Rectangle region = dirtyRegions.get(i);
+                int right = region.x + region.width;
+                int bottom = region.y + region.height;
+
+                // The dynamic layer is clipped to each region, so it can only draw where the layers below were redrawn.
+                frameGraphics.setClip(region.x, region.y, region.width, region.height);
+                frameGraphics.drawImage(staticLayer, region.x, region.y, right, bottom, region.x, region.y, right, bottom, null);
+                for (Decoration decoration : decorations) {
+                    if (decoration.bounds.intersects(region)) frameGraphics.drawImage(decoration.image, decoration.bounds.x, decoration.bounds.y, this);
+                }
+                dynamicLayer.accept(frameGraphics);
+            }
+            frameGraphics.dispose();
+        }
+
+        g.drawImage(frame, 0, 0, null);
+
+        // Anything composed outside of the painted area must still reach the screen next frame.
+        Rectangle painted = g.getClipBounds();
+        if (painted == null) unpresentedRegions.clear();
+        else {
+            unpresentedRegions.removeWithin(painted);
+            for (int i = 0; i < dirtyRegions.size(); i++) {
+                Rectangle region = dirtyRegions.get(i);
+                if (!painted.contains(region)) unpresentedRegions.add(region.x, region.y, region.width, region.height);
+            }
+        }
+
+        // This frame's dynamic regions need clearing next frame.
+        List<Rectangle> swap = previousDynamicRegions;
+        previousDynamicRegions = dynamicRegions;
+        previousDynamicRegionCount = dynamicRegionCount;
+        dynamicRegions = swap;
+        dynamicRegionCount = 0;
+    }
+
+    private void collectDirtyRegions() {
+        dirtyRegions.clear();
+        if (isFullRedrawNeeded) {
+            isFullRedrawNeeded = false;
+            dirtyRegions.add(0, 0, width, height);
+        }
+
+        long now = System.nanoTime();
+        for (Decoration decoration : decorations) {
+            if (decoration.isRefreshDue(now)) {
+                decoration.lastRefreshTime = now;
+                dirtyRegions.add(decoration.bounds.x, decoration.bounds.y, decoration.bounds.width, decoration.bounds.height);
+            }
+        }
+        for (int i = 0; i < dynamicRegionCount; i++) dirtyRegions.add(dynamicRegions.get(i));
+        for (int i = 0; i < previousDynamicRegionCount; i++) dirtyRegions.add(previousDynamicRegions.get(i));
+    }
+
+    // Animated images keep running without repainting the whole display on every frame of the animation,
+    // as the compositor picks up their latest frame when it next redraws them.
+    @Override
+    public boolean imageUpdate(Image image, int infoFlags, int x, int y, int imageWidth, int imageHeight) {
+        return (infoFlags & (ALLBITS | ABORT | ERROR)) == 0;
+    }
+
+    // A list of rectangles that merges each added one with any it overlaps or nearly touches, so none of
+    // them overlap. The rectangles are kept for reuse when the list is cleared.
+    private static class RegionList {
+        private final List<Rectangle> regions = new ArrayList<>();
+        private int count = 0;
+
+        private int size()              { return count; }
+        private Rectangle get(int i)    { return regions.get(i); }
+        private void clear()            { count = 0; }
+
+        private void add(Rectangle region) {
+            add(region.x, region.y, region.width, region.height);
+        }
+
+        private void add(int x, int y, int regionWidth, int regionHeight) {
+            if (regionWidth <= 0 || regionHeight <= 0) return;
+            int right = x + regionWidth;
+            int bottom = y + regionHeight;
+
+            // A merged region can reach ones it didn't before, so check them all again after each merge.
+            int i = 0;
+            while (i < count) {
+                Rectangle region = regions.get(i);
+                if (region.x - MERGE_DISTANCE < right && x < region.x + region.width + MERGE_DISTANCE
+                        && region.y - MERGE_DISTANCE < bottom && y < region.y + region.height + MERGE_DISTANCE) {
+                    right = Math.max(right, region.x + region.width);
+                    bottom = Math.max(bottom, region.y + region.height);
+                    x = Math.min(x, region.x);
+                    y = Math.min(y, region.y);
+                    removeAt(i);
+                    i = 0;
+                }
+                else i++;
+            }
+
+            if (count == regions.size()) regions.add(new Rectangle());
+            regions.get(count++).setBounds(x, y, right - x, bottom - y);
+        }
+
+        // Removes the regions entirely inside the given bounds.
+        private void removeWithin(Rectangle bounds) {
+            int i = 0;
+            while (i < count) {
+                if (bounds.contains(regions.get(i))) removeAt(i);
+                else i++;
+            }
+        }
+
+        // Order doesn't matter, so the last region takes the removed one's place.
+        private void removeAt(int i) {
+            Collections.swap(regions, i, --count);
+        }
+    }
+
+    private static class Decoration {
+        private final Image image;
+        private final Rectangle bounds;
+        private final long refreshInterval;
+        private long lastRefreshTime;
+
+        private Decoration(Image image, Rectangle bounds, long refreshInterval) {
+            this.image = image;
+            this.bounds = bounds;
+            this.refreshInterval = refreshInterval;
+        }
+
+        private boolean isRefreshDue(long now) {
+            return now - lastRefreshTime >= refreshInterval;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package game.client;
+
+import game.common.TrackData;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code RaceStandings} class ranks every kart in the race by how far
+ * around the track it has driven. Each kart's progress is read from the
+ * racetrack's progress field in constant time, and counted across laps by
+ * watching for it passing the finish line, where the field wraps around.
+ * <p>
+ * The standings are kept in order between steps, and karts rarely overtake,
+ * so each step only swaps neighbouring karts that have changed places.
+ */
+public class RaceStandings {
+
+    // Object properties.
+    private final TrackData trackData;
+    private final List<KartProgress> standings = new ArrayList<>();
+    private int version = 0; // Changes whenever the order does.
+
+    // Property access methods.
+    public synchronized int getVersion() { return version; }
+
+    // Constructor.
+    public RaceStandings(TrackData trackData) {
+        this.trackData = trackData;
+    }
+
+    // Karts start behind the finish line, so they begin the race on the lap before the first.
+    public synchronized void add(Kart kart) {
+        var progress = new KartProgress(kart);
+        progress.fieldProgress = Math.max(0, getFieldProgress(kart));
+        progress.raceProgress = progress.fieldProgress - trackData.getLapLength();
+        standings.add(progress);
+        sortAfter(standings.size() - 1);
+        version++;
+    }
+
+    public synchronized void remove(Kart kart) {
+        if (standings.removeIf(progress -> progress.kart == kart)) version++;
+    }
+
+    public synchronized void update() {
+        float lapLength = trackData.getLapLength();
+        for (KartProgress progress : standings) {
+            float fieldProgress = getFieldProgress(progress.kart);
+            if (fieldProgress == TrackData.NOT_DRIVABLE) continue;
+
+            // A jump of over half a lap is the field wrapping at the finish line, forwards or backwards.
+            float change = fieldProgress - progress.fieldProgress;
+            if (change < -lapLength / 2) change += lapLength;
+            else if (change > lapLength / 2) change -= lapLength;
+            progress.raceProgress += change;
+            progress.fieldProgress = fieldProgress;
+        }
+        for (int i = 1; i < standings.size(); i++) sortAfter(i);
+    }
+
+    // Moves the kart at the index up past any karts it has overtaken.
+    private void sortAfter(int index) {
+        KartProgress progress = standings.get(index);
+        int position = index;
+        while (position > 0 && standings.get(position - 1).raceProgress < progress.raceProgress) {
+            standings.set(position, standings.get(position - 1));
+            position--;
+        }
+        if (position != index) {
+            standings.set(position, progress);
+            version++;
+        }
+    }
+
+    private float getFieldProgress(Kart kart) {
+        Rectangle hitBox = kart.getHitBox();
+        return trackData.getProgress((int) hitBox.getCenterX(), (int) hitBox.getCenterY());
+    }
+
+    // The kart's place in the race, starting from 1.
+    public synchronized int getPosition(Kart kart) {
+        for (int i = 0; i < standings.size(); i++) {
+            if (standings.get(i).kart == kart) return i + 1;
+        }
+        return standings.size();
+    }
+
+    // The karts from first to last, copied into the given array, returning how many there are.
+    public synchronized int getOrder(Kart[] order) {
+        int count = Math.min(order.length, standings.size());
+        for (int i = 0; i < count; i++) order[i] = standings.get(i).kart;
+        return count;
+    }
+
+    private static class KartProgress {
+        private final Kart kart;
+        private float fieldProgress;
+        private float raceProgress; // Pixels driven since first crossing the finish line.
+
+        private KartProgress(Kart kart) {
+            this.kart = kart;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package game.client;
+
+/**
+ * The {@code RemoteKart} class moves an opponent's kart purely from the states
+ * received over the network. The kart is interpolated from its snapshot buffer,
+ * and during short gaps in updates it is dead-reckoned from its last velocity and
+ * turn rate for a bounded time. Once updates return, the kart blends back onto them.
+ * Remote karts never run the local track collision, so no crash side effects occur.
+ */
+public class RemoteKart {
+
+    // Constants.
+    private static final long EXTRAPOLATION_HORIZON = 250_000_000;
+    private static final float BLEND_RATE           = 0.15f;
+    private static final float SETTLED_ERROR        = 0.1f;
+    private static final float SNAP_DISTANCE        = 60f;
+
+    // Object properties.
+    private final Kart kart;
+    private final KartSnapshotBuffer snapshots = new KartSnapshotBuffer();
+    private boolean isExtrapolating = false;
+    private float blendX;
+    private float blendY;
+
+    // Property access methods.
+    public Kart getKart() { return kart; }
+
+    // Constructor.
+    public RemoteKart(Kart kart) {
+        this.kart = kart;
+    }
+
+    // Called from the connection thread as each state arrives.
+    public void receive(float rotation, float speed, float positionX, float positionY) {
+        snapshots.add(System.nanoTime(), rotation, speed, positionX, positionY);
+    }
+
+    public void update(long now) {
+        float shownX = kart.getPosition().x;
+        float shownY = kart.getPosition().y;
+
+        long renderTime = snapshots.getRenderTime(now);
+        boolean wasExtrapolating = isExtrapolating;
+
+        if (snapshots.interpolate(renderTime, kart)) isExtrapolating = false;
+        else if (snapshots.extrapolate(renderTime, EXTRAPOLATION_HORIZON, kart)) isExtrapolating = true;
+        else return;
+
+        // Real data has returned after a guess, so ease from where the kart was shown onto it.
+        if (wasExtrapolating && !isExtrapolating) {
+            blendX = shownX - kart.getPosition().x;
+            blendY = shownY - kart.getPosition().y;
+            if (Math.abs(blendX) > SNAP_DISTANCE || Math.abs(blendY) > SNAP_DISTANCE) {
+                blendX = 0;
+                blendY = 0;
+            }
+        }
+
+        decayBlend();
+        if (blendX != 0 || blendY != 0) kart.setPosition(kart.getPosition().x + blendX, kart.getPosition().y + blendY);
+        kart.updateImage();
+    }
+
+    private void decayBlend() {
+        blendX -= blendX * BLEND_RATE;
+        blendY -= blendY * BLEND_RATE;
+        if (Math.abs(blendX) < SETTLED_ERROR) blendX = 0;
+        if (Math.abs(blendY) < SETTLED_ERROR) blendY = 0;
+    }
+}
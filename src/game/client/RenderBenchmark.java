@@ -0,0 +1,159 @@
+package game.client;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code RenderBenchmark} class measures how long the race, pause and
+ * game over displays take to draw, without a window, server or sound.
+ * A game with synthetic players is driven around the track by script and
+ * each display is drawn into an offscreen image for a number of frames,
+ * then the frame time percentiles and memory allocated per frame are reported.
+ * <p>
+ * Usage: {@code java -Djava.awt.headless=true game.client.RenderBenchmark [players] [frames] [badWeather]}
+ * with the client's images on the class path.
+ */
+public class RenderBenchmark {
+
+    // Constants.
+    private static final int DEFAULT_PLAYERS    = 6;
+    private static final int DEFAULT_FRAMES     = 5000;
+    private static final int WARMUP_FRAMES      = 500;
+    private static final int KART_STYLES        = 7;
+    private static final int SCREEN_WIDTH       = 850;
+    private static final int SCREEN_HEIGHT      = 650;
+    private static final long COUNTDOWN_TIME    = 4_000_000; // Microseconds, long enough for the countdown to be over.
+
+    // Scripted laps follow an ellipse through the middle of the track.
+    private static final float LAP_CENTRE_X     = 425;
+    private static final float LAP_CENTRE_Y     = 350;
+    private static final float LAP_RADIUS_X     = 325;
+    private static final float LAP_RADIUS_Y     = 200;
+    private static final double LAP_STEP        = 0.0075; // Radians per frame, about full speed.
+    private static final int KART_HALF_SIZE     = 25;
+    private static final int TURN_CIRCLE        = 160;
+
+    // Object properties.
+    private final Game game;
+    private final List<Kart> karts = new ArrayList<>();
+    private final Graphics2D graphics;
+    private final com.sun.management.ThreadMXBean threads;
+    private int frame = 0;
+
+    // Constructor.
+    private RenderBenchmark(int players, boolean isBadWeather) {
+        BaseDisplay.createOffscreen();
+        AudioManager.mute(true);
+        ServerHandler handler = ServerManager.useOfflineHandler();
+        handler.startOfflineCountdown(ClockSync.getLocalTime() - COUNTDOWN_TIME);
+
+        var mainPlayer = new ControlledPlayer(1);
+        List<Player> opponents = new ArrayList<>();
+        Map<Integer, Integer> kartChoices = new HashMap<>();
+        kartChoices.put(1, 0);
+        for (int i = 2; i <= players; i++) {
+            opponents.add(new Player(i));
+            kartChoices.put(i, (i - 1) % KART_STYLES);
+        }
+        game = new Game(new GameOptions(0, isBadWeather, mainPlayer, opponents, kartChoices));
+
+        karts.add(mainPlayer.getKart());
+        for (Player opponent : opponents) karts.add(opponent.getKart());
+
+        var screen = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = screen.createGraphics();
+        threads = getThreadBean();
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    public static void main(String[] args) {
+        if (!GraphicsEnvironment.isHeadless()) System.err.println("Not headless, pass -Djava.awt.headless=true for comparable results.");
+
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PLAYERS;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+        boolean isBadWeather = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        var benchmark = new RenderBenchmark(players, isBadWeather);
+        System.out.printf("%d players, %d frames, bad weather %b%n", players, frames, isBadWeather);
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %12s%n", "display", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "bytes/frame");
+
+        var gameDisplay = new GameDisplay(benchmark.game);
+        benchmark.run("race", gameDisplay, frames);
+        benchmark.run("pause", new GamePauseDisplay(benchmark.game, gameDisplay), frames);
+        benchmark.run("game over", new GameOverDisplay(benchmark.game), frames);
+
+        // The client's threads are not daemons, so leave explicitly.
+        System.exit(0);
+    }
+
+    private void run(String name, Display display, int frames) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) drawFrame(display);
+
+        long[] frameTimes = new long[frames];
+        long allocatedBefore = getAllocatedBytes();
+        for (int i = 0; i < frames; i++) frameTimes[i] = drawFrame(display);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+
+        report(name, frameTimes, allocated);
+    }
+
+    private long drawFrame(Display display) {
+        moveKarts();
+        long startTime = System.nanoTime();
+        display.update(graphics);
+        return System.nanoTime() - startTime;
+    }
+
+    // Karts are spaced evenly around the lap so they never collide.
+    private void moveKarts() {
+        for (int i = 0; i < karts.size(); i++) {
+            Kart kart = karts.get(i);
+            double angle = frame * LAP_STEP + i * 2 * Math.PI / karts.size();
+            kart.savePreviousPosition();
+            kart.setPosition((float) (LAP_CENTRE_X + LAP_RADIUS_X * Math.cos(angle)) - KART_HALF_SIZE,
+                    (float) (LAP_CENTRE_Y + LAP_RADIUS_Y * Math.sin(angle)) - KART_HALF_SIZE);
+            kart.setRotation((float) ((angle / (2 * Math.PI) * TURN_CIRCLE) % TURN_CIRCLE + TURN_CIRCLE) % TURN_CIRCLE);
+            kart.updateImage();
+        }
+        frame++;
+    }
+
+    private long getAllocatedBytes() {
+        return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private void report(String name, long[] frameTimes, long allocated) {
+        long total = 0;
+        for (long frameTime : frameTimes) total += frameTime;
+        Arrays.sort(frameTimes);
+
+        String allocatedPerFrame = threads == null ? "n/a" : String.valueOf(allocated / frameTimes.length);
+        System.out.printf("%-10s %9.3f %9.3f %9.3f %9.3f %9.3f %12s%n", name,
+                toMillis(total / frameTimes.length), toMillis(getPercentile(frameTimes, 0.5)),
+                toMillis(getPercentile(frameTimes, 0.9)), toMillis(getPercentile(frameTimes, 0.99)),
+                toMillis(frameTimes[frameTimes.length - 1]), allocatedPerFrame);
+    }
+
+    private static long getPercentile(long[] sortedTimes, double percentile) {
+        int index = (int) Math.ceil(sortedTimes.length * percentile) - 1;
+        return sortedTimes[Math.max(0, Math.min(index, sortedTimes.length - 1))];
+    }
+
+    private static double toMillis(long time) {
+        return time / 1_000_000.0;
+    }
+}
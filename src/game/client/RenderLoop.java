@@ -0,0 +1,111 @@
+package game.client;
+
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code RenderLoop} class actively renders the current display onto a
+ * {@code Canvas} through a triple-buffered {@code BufferStrategy}, rather than
+ * waiting for Swing to coalesce repaint requests. Frames are paced to a target
+ * rate by sleeping until shortly before each frame is due and spinning the rest.
+ * <p>
+ * While the canvas is hidden, the render thread blocks until it is shown
+ * again, rather than waking each frame to check.
+ */
+public class RenderLoop implements Runnable {
+
+    // Constants.
+    private static final int BUFFERS            = 3;
+    private static final long SPIN_TIME         = 1_000_000; // Sleeping is imprecise, so spin the last millisecond.
+    private static final long NANOS_PER_SECOND  = 1_000_000_000;
+
+    // Object properties.
+    private final BaseDisplay baseDisplay;
+    private final Canvas canvas;
+    private final long frameTime;
+
+    // Constructor.
+    public RenderLoop(BaseDisplay baseDisplay, Canvas canvas, int targetFramesPerSecond) {
+        this.baseDisplay = baseDisplay;
+        this.canvas = canvas;
+        frameTime = NANOS_PER_SECOND / Math.max(1, targetFramesPerSecond);
+
+        // Wake the render thread whenever the canvas is shown, hidden, or added to the screen.
+        canvas.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & (HierarchyEvent.SHOWING_CHANGED | HierarchyEvent.DISPLAYABILITY_CHANGED)) != 0) {
+                wakeRenderThread();
+            }
+        });
+    }
+
+    // Render thread loops here.
+    @Override
+    public void run() {
+        BufferStrategy bufferStrategy = null;
+        long nextFrameTime = System.nanoTime();
+
+        try {
+            while (true) {
+                // The canvas is hidden while Swing paints a display with components.
+                if (!canvas.isShowing()) {
+                    awaitShowing();
+                    nextFrameTime = System.nanoTime();
+                }
+
+                // The canvas can only be given buffers once it is on screen.
+                if (bufferStrategy == null) {
+                    canvas.createBufferStrategy(BUFFERS);
+                    bufferStrategy = canvas.getBufferStrategy();
+                }
+                renderFrame(bufferStrategy);
+
+                nextFrameTime += frameTime;
+                long now = System.nanoTime();
+                // After falling more than a frame behind, start pacing again from now rather than rushing to catch up.
+                if (now - nextFrameTime > frameTime) nextFrameTime = now;
+                waitUntil(nextFrameTime);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void awaitShowing() throws InterruptedException {
+        while (!canvas.isShowing()) wait();
+    }
+
+    private synchronized void wakeRenderThread() {
+        notifyAll();
+    }
+
+    private void renderFrame(BufferStrategy bufferStrategy) {
+        // Contents can be lost or restored by the system at any time, so redraw until a frame survives.
+        do {
+            do {
+                Graphics g = bufferStrategy.getDrawGraphics();
+                try {
+                    baseDisplay.renderFrame(g);
+                }
+                catch (RuntimeException e) {
+                    System.err.println("Frame render failed: " + e);
+                }
+                finally {
+                    g.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+
+        // Flush the frame to the screen now instead of whenever the windowing system gets to it.
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void waitUntil(long targetTime) {
+        long remaining = targetTime - System.nanoTime();
+        if (remaining > SPIN_TIME) LockSupport.parkNanos(remaining - SPIN_TIME);
+        while (System.nanoTime() < targetTime) Thread.onSpinWait();
+    }
+}
@@ -27,6 +27,12 @@ public class ServerHandler implements Runnable {
     private int kartChoice;
     private int mapChoice;
 
+    // Clock synchronisation with the server.
+    private final ClockSync clockSync = new ClockSync();
+    private long serverCountdownStartTime;
+    private long fallbackCountdownStartTime;
+    private boolean isLockstep;
+
     // Game-related instances.
     private Game activeGame;
     private GameJoinDisplay joinDisplay;
@@ -39,6 +45,7 @@ public class ServerHandler implements Runnable {
     private boolean connectionActive = false;
     private boolean isGameActive = false;
     private boolean isServerFull = false;
+    private volatile List<String> leaderboard = List.of();
 
     // Property access methods.
     public int getPlayerNumber()                    { return playerNumber; }
@@ -46,6 +53,14 @@ public class ServerHandler implements Runnable {
     public int getMapChoice()                       { return mapChoice; }
     public List<Integer> getOpponents()             { return opponents; }
     public Map<Integer, Integer> getKartChoices()   { return chosenKarts; }
+    public List<String> getLeaderboard()            { return leaderboard; }
+    public boolean isLockstep()                     { return isLockstep; }
+
+    // Converted on each call so the start time benefits from any samples still arriving.
+    public long getCountdownStartTime() {
+        if (clockSync.isSynchronised()) return clockSync.toLocalTime(serverCountdownStartTime);
+        else return fallbackCountdownStartTime;
+    }
 
     public void setGame(Game activeGame) {
         this.activeGame = activeGame;
@@ -66,11 +81,27 @@ public class ServerHandler implements Runnable {
         isGameActive = true;
     }
 
-    public void startGame(boolean active) {
-        isGameActive = active;
+    private void startGame(String[] data) {
+        // Without a clock sync, the countdown starts as soon as the command arrives.
+        fallbackCountdownStartTime = ClockSync.getLocalTime();
+        try {
+            serverCountdownStartTime = Long.parseLong(data[1]);
+            isLockstep = data.length > 2 && Boolean.parseBoolean(data[2]);
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when starting the game: " + e.getMessage());
+        }
+        isGameActive = true;
         lobbyDisplay.startGame();
     }
 
+    // Starts the countdown without a server, for games run offline.
+    public void startOfflineCountdown(long countdownStartTime) {
+        fallbackCountdownStartTime = countdownStartTime;
+        isLockstep = false;
+        isGameActive = true;
+    }
+
     private void setConnectionActive() {
         connectionActive = true;
     }
@@ -112,6 +143,7 @@ public class ServerHandler implements Runnable {
 
             if (!isServerFull && !isGameActive) {
                 getPlayerProperties();
+                synchroniseClock();
 
                 do handleServerCommand();
                 while (connectionActive);
@@ -189,15 +221,21 @@ public class ServerHandler implements Runnable {
             case "RESPOND_PLAYER_COUNT"     -> setServerFull(messageData);
             case "RESPOND_SERVER_STAGE"     -> setServerStage(messageData);
             case "RESPOND_PL_LOBBY_DATA"    -> updatePlayerLobbyData(messageData);
-            case "REQUEST_START_GAME"       -> startGame(true);
+            case "REQUEST_START_GAME"       -> startGame(messageData);
+            case "RESPOND_TIME_SYNC"        -> updateClockSync(messageData);
+            case "RESPOND_LEADERBOARD"      -> updateLeaderboard(messageData);
             case "OP_ADD"                   -> addOpponent(messageData);
             case "OP_REMOVE"                -> removeOpponent(messageData);
             case "END_CONNECTION"           -> disconnectPlayer();
             case "UPDATE_OP_KART_CHOICE"    -> updateOpponentKartChoice(messageData);
             case "UPDATE_OP_READY_STATE"    -> updateOpponentReadyState(messageData);
             case "UPDATE_MAP_CHOICE"        -> updateChosenMap(messageData);
+            case "RESYNC_LOBBY"             -> resyncLobby(messageData);
             case "UPDATE_WEATHER"           -> updateWeather(messageData);
             case "SEND_OP_KART_DATA"        -> updateOpponentKartData(messageData);
+            case "OP_KART_INPUT"            -> updateOpponentKartInput(messageData);
+            case "LOCKSTEP_DESYNC"          -> reportLockstepDesync(messageData);
+            case "CORRECT_KART_DATA"        -> correctPlayerKartData(messageData);
             case "END_GAME"                 -> endGame();
             case "RACE_LOST"                -> activeGame.loseGame(messageData);
             default -> throw new IllegalStateException("Unrecognised server command: " + command);
@@ -219,6 +257,27 @@ public class ServerHandler implements Runnable {
         handleServerCommand();
     }
 
+    // Samples are taken one after another, each request sent once the last reply arrives.
+    private void synchroniseClock() {
+        clockSync.beginBurst();
+        sendTimeSyncRequest();
+    }
+
+    private void sendTimeSyncRequest() {
+        sendCommand("REQUEST_TIME_SYNC " + ClockSync.getLocalTime());
+    }
+
+    private void updateClockSync(String[] data) {
+        try {
+            long requestTime = Long.parseLong(data[1]);
+            long serverTime = Long.parseLong(data[2]);
+            if (clockSync.addSample(requestTime, serverTime)) sendTimeSyncRequest();
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when synchronising the clock: " + e.getMessage());
+        }
+    }
+
     public void terminateConnection() {
         if (connectionActive) sendCommand("END_CONNECTION");
     }
@@ -227,13 +286,23 @@ public class ServerHandler implements Runnable {
         if (connectionActive) sendCommand("END_CONN_INVALID");
     }
 
-    public void sendKart(Kart kart) {
+    public void sendKart(Kart kart, int inputSequence) {
         int kartNumber = kart.getKartNumber();
         float rotation = kart.getRotation();
         float speed = kart.getSpeed();
         float positionX = kart.getPosition().x;
         float positionY = kart.getPosition().y;
-        sendCommand("SEND_KART_DATA " + kartNumber + " " + rotation + " " + speed + " " + positionX + " " + positionY);
+        sendCommand("SEND_KART_DATA " + kartNumber + " " + rotation + " " + speed + " "
+                + positionX + " " + positionY + " " + inputSequence);
+    }
+
+    // Lockstep inputs carry their tick, so every player applies them to the same tick.
+    public void sendKartInput(int inputTick, int input) {
+        sendCommand("KART_INPUT " + inputTick + " " + input);
+    }
+
+    public void sendStateChecksum(int tick, int checksum) {
+        sendCommand("STATE_CHECKSUM " + tick + " " + checksum);
     }
 
     public void clearLocalLobby() {
@@ -255,6 +324,40 @@ public class ServerHandler implements Runnable {
         }
     }
 
+    private void updateOpponentKartInput(String[] data) {
+        try {
+            int opponentNumber = Integer.parseInt(data[1]);
+            int inputTick = Integer.parseInt(data[2]);
+            int input = Integer.parseInt(data[3]);
+            Game game = activeGame;
+            if (game != null && game.isLockstep()) game.getLockstepSession().receiveInput(opponentNumber, inputTick, input);
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when updating an opponent's kart input: " + e.getMessage());
+        }
+    }
+
+    // The players' karts no longer match, so they're no longer seeing the same race.
+    private void reportLockstepDesync(String[] data) {
+        System.err.println("Lockstep desync: player " + data[2] + " and player " + data[3]
+                + " simulated different karts by tick " + data[1] + ".");
+    }
+
+    private void correctPlayerKartData(String[] data) {
+        try {
+            int inputSequence = Integer.parseInt(data[1]);
+            float rotation = Float.parseFloat(data[2]);
+            float speed = Float.parseFloat(data[3]);
+            float positionX = Float.parseFloat(data[4]);
+            float positionY = Float.parseFloat(data[5]);
+            if (gameDisplay != null) gameDisplay.correctPlayerKart(
+                    inputSequence, rotation, speed, positionX, positionY);
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when correcting the player's kart data: " + e.getMessage());
+        }
+    }
+
     private void updatePlayerLobbyData(String[] data) {
         try {
             playerNumber = Integer.parseInt(data[1]);
@@ -316,6 +419,35 @@ public class ServerHandler implements Runnable {
         }
     }
 
+    // The server dropped lobby changes sent too quickly, so take its view of the whole lobby.
+    private void resyncLobby(String[] data) {
+        if (lobbyDisplay == null) return;
+        try {
+            mapChoice = Integer.parseInt(data[1]);
+            lobbyDisplay.updateSelectedMap(mapChoice);
+
+            // Each player's number, kart and ready state.
+            for (int i = 2; i + 2 < data.length; i += 3) {
+                int number = Integer.parseInt(data[i]);
+                int numberKartChoice = Integer.parseInt(data[i + 1]);
+                boolean numberReadyState = Boolean.parseBoolean(data[i + 2]);
+                chosenKarts.put(number, numberKartChoice);
+
+                if (number == playerNumber) {
+                    kartChoice = numberKartChoice;
+                    lobbyDisplay.resyncPlayer(numberKartChoice, numberReadyState);
+                }
+                else {
+                    lobbyDisplay.updateOpponentKartChoice(number, numberKartChoice);
+                    lobbyDisplay.updateOpponentReadyState(number, numberReadyState);
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when resyncing the lobby: " + e.getMessage());
+        }
+    }
+
     private void updateWeather(String[] data) {
         if (lobbyDisplay == null) return;
         try {
@@ -369,12 +501,44 @@ public class ServerHandler implements Runnable {
         opponents.clear();
     }
 
-    public void raceWon() {
-        sendCommand("RACE_WON");
+    public void raceWon(int finishTime, int[] lapTimes) {
+        var command = new StringBuilder("RACE_WON " + finishTime);
+        for (int lapTime : lapTimes) command.append(" ").append(lapTime);
+        sendCommand(command.toString());
+    }
+
+    public void requestLeaderboard(int map, boolean isBadWeather) {
+        leaderboard = List.of();
+        sendCommand("REQUEST_LEADERBOARD " + map + " " + isBadWeather);
+    }
+
+    private void updateLeaderboard(String[] data) {
+        try {
+            int entries = Integer.parseInt(data[3]);
+            List<String> rankings = new ArrayList<>();
+            for (int i = 0; i < entries; i++) {
+                int winnerNumber = Integer.parseInt(data[4 + i * 3]);
+                int finishTime = Integer.parseInt(data[6 + i * 3]);
+                rankings.add((i + 1) + ". " + formatRaceTime(finishTime) + "  Player " + winnerNumber);
+            }
+            leaderboard = rankings;
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when updating the leaderboard: " + e.getMessage());
+        }
+    }
+
+    // Format a race time in milliseconds as "00:00.000".
+    private static String formatRaceTime(int milliseconds) {
+        return String.format("%02d:%02d.%03d", milliseconds / 60_000, milliseconds / 1000 % 60, milliseconds % 1000);
     }
 
     public void sendReadyState(boolean isReady) {
-        if (isReady) sendCommand("PLAYER_READY");
+        if (isReady) {
+            // Refresh the clock offset just before the game may start.
+            synchroniseClock();
+            sendCommand("PLAYER_READY");
+        }
         else sendCommand("PLAYER_UNREADY");
     }
 
@@ -392,6 +556,7 @@ public class ServerHandler implements Runnable {
 }
 
     private synchronized void sendCommand(String command) {
+        if (outputStreamToServer == null) return; // Offline, so there is nobody to tell.
         try {
             outputStreamToServer.writeBytes(command + "\n");
         } catch (IOException e) {
@@ -30,6 +30,12 @@ public class ServerManager {
         return false;
     }
 
+    // A handler that is never connected, so games can run without a server, such as in benchmarks.
+    public static ServerHandler useOfflineHandler() {
+        handler = new ServerHandler(null);
+        return handler;
+    }
+
     public static void disconnectFromServer() {
         handler = null;
     }
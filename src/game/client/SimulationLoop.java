@@ -0,0 +1,58 @@
+package game.client;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code SimulationLoop} class advances the current display's simulation
+ * on its own thread at a fixed timestep, independent of how often Swing paints.
+ * Real time is gathered in an accumulator and spent in whole steps, so a slow
+ * frame is caught up with extra steps rather than slowing the race down.
+ */
+public class SimulationLoop implements Runnable {
+
+    // Constants.
+    public static final long STEP_TIME          = 15_000_000; // Nanoseconds, the rate the kart physics are tuned for.
+    private static final long MAX_FRAME_TIME    = 250_000_000; // Avoid a long stall turning into hundreds of steps.
+
+    // Object properties.
+    private final BaseDisplay baseDisplay;
+    private volatile long lastStepTime;
+
+    // Constructor.
+    public SimulationLoop(BaseDisplay baseDisplay) {
+        this.baseDisplay = baseDisplay;
+    }
+
+    // How far the current time is between the last step and the next, from 0 to 1.
+    public float getAlpha() {
+        float alpha = (float) (System.nanoTime() - lastStepTime) / STEP_TIME;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    // Simulation thread loops here.
+    @Override
+    public void run() {
+        long previousTime = System.nanoTime();
+        long accumulator = 0;
+
+        while (true) {
+            long currentTime = System.nanoTime();
+            accumulator += Math.min(currentTime - previousTime, MAX_FRAME_TIME);
+            previousTime = currentTime;
+
+            while (accumulator >= STEP_TIME) {
+                try {
+                    baseDisplay.stepCurrentDisplay();
+                }
+                catch (RuntimeException e) {
+                    System.err.println("Simulation step failed: " + e);
+                }
+                accumulator -= STEP_TIME;
+                lastStepTime = System.nanoTime();
+            }
+
+            // Sleep until the next step is due.
+            LockSupport.parkNanos(STEP_TIME - accumulator);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package game.client;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The {@code StandingsPanel} class draws the live race standings in the HUD,
+ * listing every kart's place with the player's own highlighted. The panel
+ * is composed into an image only when the order changes, which is rare,
+ * so each frame just copies that image.
+ */
+public class StandingsPanel {
+
+    // Constants.
+    private static final String[] PLACES        = {"1st", "2nd", "3rd", "4th", "5th", "6th"};
+    private static final Font FONT              = new Font("Arial", Font.BOLD, 16);
+    private static final Color PLAYER_COLOUR    = new Color(255, 215, 0);
+    private static final int LINE_HEIGHT        = 20;
+    private static final int PADDING            = 6;
+    private static final int WIDTH              = 130;
+
+    // Object properties.
+    private final Color background;
+    private final BufferedImage panelImage;
+    private final Kart[] order = new Kart[PLACES.length];
+    private int composedVersion = -1;
+
+    // Property access methods.
+    public int getWidth()   { return panelImage.getWidth(); }
+    public int getHeight()  { return panelImage.getHeight(); }
+
+    // Constructor.
+    public StandingsPanel(Color background) {
+        this.background = background;
+        panelImage = new BufferedImage(WIDTH, LINE_HEIGHT * PLACES.length + PADDING * 2, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    public boolean needsRedraw(RaceStandings standings) {
+        return standings.getVersion() != composedVersion;
+    }
+
+    public void draw(Graphics g, RaceStandings standings, Kart playerKart, int x, int y) {
+        if (needsRedraw(standings)) compose(standings, playerKart);
+        g.drawImage(panelImage, x, y, null);
+    }
+
+    private void compose(RaceStandings standings, Kart playerKart) {
+        composedVersion = standings.getVersion();
+        int count = standings.getOrder(order);
+
+        Graphics2D g = panelImage.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, panelImage.getWidth(), panelImage.getHeight());
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(background);
+        g.fillRect(0, 0, WIDTH, LINE_HEIGHT * count + PADDING * 2);
+
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(FONT);
+        int baseline = PADDING + g.getFontMetrics().getAscent();
+        for (int i = 0; i < count; i++) {
+            g.setColor(order[i] == playerKart ? PLAYER_COLOUR : Color.white);
+            g.drawString(PLACES[i] + "  Player " + order[i].getKartNumber(), PADDING, baseline + i * LINE_HEIGHT);
+        }
+        g.dispose();
+    }
+}
@@ -0,0 +1,82 @@
+package game.client;
+
+import java.awt.*;
+
+/**
+ * The {@code SweptCollision} utility class tests boxes along the whole path
+ * they moved through in a step, rather than only where they ended up, so a
+ * fast kart cannot pass through a thin checkpoint line or another kart
+ * between two steps. Each test gives the time of impact as the fraction
+ * of the step's movement completed when the boxes first overlap.
+ */
+public class SweptCollision {
+
+    // Returned when the boxes never overlap during the step.
+    public static final float NO_IMPACT = Float.POSITIVE_INFINITY;
+
+    // Prevent object creation from the implicit public constructor.
+    private SweptCollision() {
+        throw new IllegalStateException("Tried to instantiate the SweptCollision utility class");
+    }
+
+    // When a box moving from its start by the given distance first overlaps a still target, from 0 to 1.
+    // Boxes that only touch edges do not overlap, matching Rectangle.intersects.
+    public static float getTimeOfImpact(Rectangle box, float moveX, float moveY, Rectangle target) {
+        float enterX, exitX, enterY, exitY;
+
+        if (moveX == 0) {
+            if (box.x >= target.x + target.width || box.x + box.width <= target.x) return NO_IMPACT;
+            enterX = Float.NEGATIVE_INFINITY;
+            exitX = Float.POSITIVE_INFINITY;
+        }
+        else {
+            float nearX = (target.x - box.x - box.width) / moveX;
+            float farX = (target.x + target.width - box.x) / moveX;
+            enterX = Math.min(nearX, farX);
+            exitX = Math.max(nearX, farX);
+        }
+
+        if (moveY == 0) {
+            if (box.y >= target.y + target.height || box.y + box.height <= target.y) return NO_IMPACT;
+            enterY = Float.NEGATIVE_INFINITY;
+            exitY = Float.POSITIVE_INFINITY;
+        }
+        else {
+            float nearY = (target.y - box.y - box.height) / moveY;
+            float farY = (target.y + target.height - box.y) / moveY;
+            enterY = Math.min(nearY, farY);
+            exitY = Math.max(nearY, farY);
+        }
+
+        // The boxes overlap only while they overlap on both axes at once.
+        float enter = Math.max(enterX, enterY);
+        float exit = Math.min(exitX, exitY);
+        if (enter >= exit || enter >= 1 || exit <= 0) return NO_IMPACT;
+        return Math.max(0, enter);
+    }
+
+    // When a kart's hit box first touched a still target during the last step.
+    public static float getTimeOfImpact(Kart kart, Rectangle target) {
+        Rectangle start = kart.getSweepStart();
+        Rectangle end = kart.getHitBox();
+        return getTimeOfImpact(start, end.x - start.x, end.y - start.y, target);
+    }
+
+    // When two karts first touched during the last step, with both moving.
+    public static float getTimeOfImpact(Kart first, Kart second) {
+        Rectangle firstStart = first.getSweepStart();
+        Rectangle secondStart = second.getSweepStart();
+        // Measured from the second kart, only the first kart moves.
+        float moveX = (first.getHitBox().x - firstStart.x) - (second.getHitBox().x - secondStart.x);
+        float moveY = (first.getHitBox().y - firstStart.y) - (second.getHitBox().y - secondStart.y);
+        return getTimeOfImpact(firstStart, moveX, moveY, secondStart);
+    }
+
+    public static boolean isTouching(Kart kart, Rectangle target) {
+        return getTimeOfImpact(kart, target) != NO_IMPACT;
+    }
+
+    public static boolean isTouching(Kart first, Kart second) {
+        return getTimeOfImpact(first, second) != NO_IMPACT;
+    }
+}
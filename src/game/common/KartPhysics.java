@@ -0,0 +1,130 @@
+package game.common;
+
+import java.awt.*;
+
+/**
+ * The {@code KartPhysics} class is a deterministic simulation of a single kart.
+ * All state is kept in fixed-point integers and each call to {@link #step(int)}
+ * advances exactly one simulation tick from that tick's input, with no floating
+ * point maths and no reference to the clock. Given the same starting state and
+ * inputs, every machine produces exactly the same race, on the client or server.
+ * <p>
+ * Positions and speeds are measured in thousandths of a pixel, rotation in
+ * tenths of a rotation step, matching the tuning of the client's {@code Kart}.
+ */
+public class KartPhysics {
+
+    // Fixed-point scales.
+    public static final int UNITS_PER_PIXEL     = 1000;
+    public static final int ROTATION_UNITS      = 10; // Per step of the kart's 160 step turn circle.
+    public static final long STEP_TIME          = 15_000; // Microseconds simulated by each tick.
+
+    // Kart handling, in fixed-point units per tick.
+    public static final int SPEED_MAX           = 2000;
+    public static final int SPEED_BOUNCE        = -500;
+    private static final int SPEED_MIN          = 0;
+    private static final int ACCELERATION       = 100;
+    private static final int SLOW_RATE          = 25;
+    private static final int TURN_SPEED         = 15;
+    public static final int TURN_CIRCLE         = 1600;
+    private static final int DIRECTION_SIZE     = 100; // Rotation units covered by each of the 16 directions.
+
+    // Hit box, in pixels from the kart's position.
+    public static final int HIT_BOX_BUFFER      = 15;
+    public static final int HIT_BOX_SIZE        = 20;
+
+    // Input flags for a single tick of player control.
+    public static final int INPUT_RIGHT         = 1;
+    public static final int INPUT_LEFT          = 2;
+    public static final int INPUT_FORWARD       = 4;
+    public static final int INPUT_BACKWARD      = 8;
+    public static final int INPUT_MASK          = 15;
+    public static final int INPUT_DELAY         = 4; // Lockstep ticks before a key press takes effect, no keys are held before it.
+
+    // Movement along each axis for each direction, in halves of the kart's speed.
+    private static final int[] MOVE_X = { 0,  1,  2,  2, 2, 2, 2, 1, 0, -1, -2, -2, -2, -2, -2, -1};
+    private static final int[] MOVE_Y = {-2, -2, -2, -1, 0, 1, 2, 2, 2,  2,  2,  1,  0, -1, -2, -2};
+
+    // Object properties.
+    private final TrackMask track;
+    private final Rectangle sweepBox = new Rectangle(0, 0, HIT_BOX_SIZE, HIT_BOX_SIZE);
+    private int rotation;
+    private int speed;
+    private int positionX;
+    private int positionY;
+    private boolean hasCrashed;
+
+    // Property access methods.
+    public int getRotation()    { return rotation; }
+    public int getDirection()   { return rotation / DIRECTION_SIZE; }
+    public int getSpeed()       { return speed; }
+    public int getPositionX()   { return positionX; }
+    public int getPositionY()   { return positionY; }
+    public boolean hasCrashed() { return hasCrashed; }
+
+    // Constructor.
+    public KartPhysics(TrackMask track, int startDirection, Point startPosition) {
+        this.track = track;
+        rotation = startDirection * DIRECTION_SIZE;
+        positionX = startPosition.x * UNITS_PER_PIXEL;
+        positionY = startPosition.y * UNITS_PER_PIXEL;
+    }
+
+    public static float toPixels(int units) {
+        return (float) units / UNITS_PER_PIXEL;
+    }
+
+    // Advances one tick: the kart coasts, moves, then responds to the tick's input.
+    public void step(int input) {
+        reduceSpeed();
+        updatePosition();
+        applyInput(input);
+    }
+
+    private void reduceSpeed() {
+        if (speed < SPEED_MIN - SLOW_RATE) speed += SLOW_RATE;
+        else if (speed > SPEED_MIN + SLOW_RATE) speed -= SLOW_RATE;
+        else speed = SPEED_MIN;
+    }
+
+    // The kart stops where it would first leave the track and bounces off the boundary.
+    private void updatePosition() {
+        int direction = getDirection();
+        int moveX = speed * MOVE_X[direction] / 2;
+        int moveY = speed * MOVE_Y[direction] / 2;
+
+        // Step along the move no more than a pixel at a time, as the track is only exact to a pixel.
+        int steps = Math.max(1, (Math.max(Math.abs(moveX), Math.abs(moveY)) + UNITS_PER_PIXEL - 1) / UNITS_PER_PIXEL);
+        for (int step = 1; step <= steps; step++) {
+            if (!isOnTrack(positionX + moveX * step / steps, positionY + moveY * step / steps)) {
+                positionX += moveX * (step - 1) / steps;
+                positionY += moveY * (step - 1) / steps;
+                hasCrashed = true;
+                speed = SPEED_BOUNCE;
+                return;
+            }
+        }
+        positionX += moveX;
+        positionY += moveY;
+        hasCrashed = false;
+    }
+
+    private boolean isOnTrack(int x, int y) {
+        sweepBox.setLocation(Math.floorDiv(x, UNITS_PER_PIXEL) + HIT_BOX_BUFFER, Math.floorDiv(y, UNITS_PER_PIXEL) + HIT_BOX_BUFFER);
+        return track.contains(sweepBox);
+    }
+
+    private void applyInput(int input) {
+        // Modulus is used to ensure rotation loops back around from max to min.
+        if ((input & INPUT_RIGHT) != 0) rotation = (rotation + TURN_SPEED) % TURN_CIRCLE;
+        else if ((input & INPUT_LEFT) != 0) rotation = (rotation + TURN_CIRCLE - TURN_SPEED) % TURN_CIRCLE;
+
+        if ((input & INPUT_FORWARD) != 0) updateSpeed(ACCELERATION);
+        else if ((input & INPUT_BACKWARD) != 0) updateSpeed(-ACCELERATION);
+    }
+
+    private void updateSpeed(int change) {
+        // If the new speed breaches the bounds, return it back within.
+        speed = Math.max(SPEED_MIN, Math.min(SPEED_MAX, speed + change));
+    }
+}
@@ -0,0 +1,271 @@
+package game.common;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code TrackCompiler} utility class turns a text description of a
+ * racetrack and the track's image into the binary track file read by
+ * {@code TrackData}. Everything derived from the track's shape, the collision
+ * mask, how far along the racing line each point is and the direction of travel,
+ * is worked out here once, so races only have to read it. The racing line itself
+ * is kept too, for the server's bots to drive along.
+ * <p>
+ * Usage: {@code java game.common.TrackCompiler [--check] <description> <image> <output>}
+ * <p>
+ * With {@code --check} the output isn't written, but compared with the existing
+ * file, exiting with status 1 if the file is out of date, so a committed track
+ * file can be checked against its description.
+ * <p>
+ * A description is made of these lines, with points written as {@code x,y}:
+ * <ul>
+ * <li>{@code include <points...>} adds a polygon to the drivable area.
+ * <li>{@code exclude <points...>} cuts a polygon out of the drivable area.
+ * <li>{@code checkpoint <from> <to>} adds the next line to cross on a lap.
+ * <li>{@code finish <from> <to>} adds the finish line, crossed last.
+ * <li>{@code start <direction> <points...>} sets the start direction and grid.
+ * <li>{@code line <points...>} sets the racing line, a loop starting at the finish line.
+ * </ul>
+ */
+public class TrackCompiler {
+
+    // File layout.
+    public static final int MAGIC           = 0x504B5254; // "PKRT"
+    public static final int VERSION         = 2;
+
+    // Constants.
+    private static final int CELL_SIZE      = 5; // Pixels covered by each progress field cell.
+    private static final int DIRECTIONS     = 16;
+
+    // Prevent object creation from the implicit public constructor.
+    private TrackCompiler() {
+        throw new IllegalStateException("Tried to instantiate the TrackCompiler utility class");
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean isCheck = args.length == 4 && args[0].equals("--check");
+        if (args.length != 3 && !isCheck) {
+            System.err.println("Usage: java game.common.TrackCompiler [--check] <description> <image> <output>");
+            System.exit(1);
+        }
+        int argument = isCheck ? 1 : 0;
+        BufferedImage image = ImageIO.read(new File(args[argument + 1]));
+        if (image == null) throw new IOException("Unreadable track image: " + args[argument + 1]);
+
+        var track = new TrackDescription(Files.readAllLines(Paths.get(args[argument])));
+        Path output = Paths.get(args[argument + 2]);
+        var compiled = new ByteArrayOutputStream();
+        compile(track, image.getWidth(), image.getHeight(), compiled);
+
+        if (!isCheck) {
+            Files.write(output, compiled.toByteArray());
+            System.out.printf("Wrote %s, lap length %.0f pixels%n", output, track.getLapLength());
+        }
+        else if (!Files.exists(output) || !Arrays.equals(Files.readAllBytes(output), compiled.toByteArray())) {
+            System.err.println(output + " is out of date with " + args[argument] + ", compile it again.");
+            System.exit(1);
+        }
+        else System.out.println(output + " is up to date.");
+    }
+
+    private static void compile(TrackDescription track, int imageWidth, int imageHeight, OutputStream output) throws IOException {
+        Rectangle bounds = track.playableArea.getBounds();
+        if (!new Rectangle(imageWidth, imageHeight).contains(bounds)) {
+            throw new IllegalArgumentException("The track " + bounds + " doesn't fit within its image");
+        }
+        if (track.finishLine == null || track.startPositions.isEmpty() || track.racingLine.size() < 2) {
+            throw new IllegalArgumentException("The track needs a finish line, a start grid and a racing line");
+        }
+
+        long startTime = System.nanoTime();
+        TrackMask mask = TrackMask.compile(track.playableArea);
+        int columns = (imageWidth + CELL_SIZE - 1) / CELL_SIZE;
+        int rows = (imageHeight + CELL_SIZE - 1) / CELL_SIZE;
+        var progress = new float[columns * rows];
+        var travelDirections = new byte[columns * rows];
+        createFields(track, mask, columns, rows, progress, travelDirections);
+
+        try (var file = new DataOutputStream(new BufferedOutputStream(output))) {
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeInt(imageWidth);
+            file.writeInt(imageHeight);
+
+            mask.write(file);
+
+            List<Line2D> checkpoints = new ArrayList<>(track.checkpoints);
+            checkpoints.add(track.finishLine);
+            file.writeInt(checkpoints.size());
+            for (Line2D checkpoint : checkpoints) {
+                file.writeInt((int) checkpoint.getX1());
+                file.writeInt((int) checkpoint.getY1());
+                file.writeInt((int) checkpoint.getX2());
+                file.writeInt((int) checkpoint.getY2());
+            }
+
+            file.writeInt(track.startDirection);
+            file.writeInt(track.startPositions.size());
+            for (Point position : track.startPositions) {
+                file.writeInt(position.x);
+                file.writeInt(position.y);
+            }
+
+            file.writeInt(CELL_SIZE);
+            file.writeInt(columns);
+            file.writeInt(rows);
+            file.writeFloat(track.getLapLength());
+            for (float distance : progress) file.writeFloat(distance);
+            file.write(travelDirections);
+
+            file.writeInt(track.racingLine.size());
+            for (Point point : track.racingLine) {
+                file.writeInt(point.x);
+                file.writeInt(point.y);
+            }
+        }
+        System.out.printf("Compiled in %d ms%n", (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    // How far along the lap each cell is, in pixels from the finish line, taken from the nearest point on the racing line.
+    // The direction of travel is the direction of the racing line at that point, which is where progress increases.
+    private static void createFields(TrackDescription track, TrackMask mask, int columns, int rows,
+                                     float[] progress, byte[] travelDirections) {
+        List<Point> racingLine = track.racingLine;
+        var segmentStarts = new float[racingLine.size()];
+        for (int i = 1; i < racingLine.size(); i++) {
+            segmentStarts[i] = segmentStarts[i - 1] + (float) racingLine.get(i - 1).distance(racingLine.get(i));
+        }
+
+        for (int cell = 0; cell < progress.length; cell++) {
+            int column = cell % columns;
+            int row = cell / columns;
+            if (!isCellDrivable(mask, column, row)) {
+                progress[cell] = TrackData.NOT_DRIVABLE;
+                travelDirections[cell] = TrackData.NO_DIRECTION;
+                continue;
+            }
+
+            float centreX = getCellCentre(column);
+            float centreY = getCellCentre(row);
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < racingLine.size(); i++) {
+                Point start = racingLine.get(i);
+                Point end = racingLine.get((i + 1) % racingLine.size()); // The line loops back to the finish.
+                double length = start.distance(end);
+                if (length == 0) continue;
+
+                double along = ((centreX - start.x) * (end.x - start.x) + (centreY - start.y) * (end.y - start.y)) / (length * length);
+                along = Math.max(0, Math.min(1, along));
+                double distance = Point.distance(centreX, centreY, start.x + (end.x - start.x) * along, start.y + (end.y - start.y) * along);
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    progress[cell] = (float) (segmentStarts[i] + along * length);
+                    travelDirections[cell] = toDirection(end.x - start.x, end.y - start.y);
+                }
+            }
+        }
+    }
+
+    // The kart direction, from 0 to 15, closest to the given movement. Direction 0 faces up the screen and they turn clockwise.
+    private static byte toDirection(double moveX, double moveY) {
+        double angle = Math.atan2(moveX, -moveY);
+        return (byte) Math.floorMod(Math.round(angle / (2 * Math.PI) * DIRECTIONS), DIRECTIONS);
+    }
+
+    // A cell is part of the field if a kart's centre could be anywhere in it.
+    private static boolean isCellDrivable(TrackMask mask, int column, int row) {
+        for (int y = row * CELL_SIZE; y < (row + 1) * CELL_SIZE; y++) {
+            for (int x = column * CELL_SIZE; x < (column + 1) * CELL_SIZE; x++) {
+                if (mask.isDrivable(x, y)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static float getCellCentre(int index) {
+        return index * CELL_SIZE + CELL_SIZE / 2f;
+    }
+
+    // The parsed text description of a track.
+    private static class TrackDescription {
+        private final Area playableArea = new Area();
+        private final List<Line2D> checkpoints = new ArrayList<>();
+        private final List<Point> startPositions = new ArrayList<>();
+        private final List<Point> racingLine = new ArrayList<>();
+        private Line2D finishLine;
+        private int startDirection;
+
+        private TrackDescription(List<String> lines) {
+            for (int number = 1; number <= lines.size(); number++) {
+                String line = lines.get(number - 1).strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                try {
+                    parseLine(line.split("\\s+"));
+                }
+                catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Line " + number + " of the track description is invalid: " + line, e);
+                }
+            }
+        }
+
+        private void parseLine(String[] words) {
+            switch (words[0]) {
+                case "include"      -> playableArea.add(new Area(parsePolygon(words)));
+                case "exclude"      -> playableArea.subtract(new Area(parsePolygon(words)));
+                case "checkpoint"   -> checkpoints.add(parseLine(words[1], words[2]));
+                case "finish"       -> finishLine = parseLine(words[1], words[2]);
+                case "start"        -> {
+                    startDirection = Integer.parseInt(words[1]);
+                    for (int i = 2; i < words.length; i++) startPositions.add(parsePoint(words[i]));
+                }
+                case "line"         -> {
+                    for (int i = 1; i < words.length; i++) racingLine.add(parsePoint(words[i]));
+                }
+                default -> throw new IllegalArgumentException("Unrecognised track property: " + words[0]);
+            }
+        }
+
+        private float getLapLength() {
+            float lapLength = 0;
+            for (int i = 0; i < racingLine.size(); i++) {
+                lapLength += (float) racingLine.get(i).distance(racingLine.get((i + 1) % racingLine.size()));
+            }
+            return lapLength;
+        }
+
+        private static Polygon parsePolygon(String[] words) {
+            var polygon = new Polygon();
+            for (int i = 1; i < words.length; i++) {
+                Point point = parsePoint(words[i]);
+                polygon.addPoint(point.x, point.y);
+            }
+            return polygon;
+        }
+
+        private static Line2D parseLine(String from, String to) {
+            Point start = parsePoint(from);
+            Point end = parsePoint(to);
+            return new Line2D.Float(start, end);
+        }
+
+        private static Point parsePoint(String word) {
+            String[] coordinates = word.split(",");
+            return new Point(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]));
+        }
+    }
+}
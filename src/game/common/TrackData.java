@@ -0,0 +1,234 @@
+package game.common;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code TrackData} class is a racetrack read from the binary track file
+ * made by {@code TrackCompiler}. The file is memory-mapped and read once per
+ * racetrack, then shared by every race on it, so the client and server use
+ * exactly the same geometry and no geometry is built when a race starts.
+ * The progress and travel direction fields are read straight from the mapping.
+ * <p>
+ * The track each map option races on is listed by name in the maps file, so
+ * maps that only differ in their image share one track file.
+ */
+public class TrackData {
+
+    // Field values for cells a kart can't be in.
+    public static final float NOT_DRIVABLE  = -1;
+    public static final byte NO_DIRECTION   = -1;
+
+    // Loaded racetracks by track name, and the track each map option races on.
+    private static final String TRACK_DIRECTORY = "tracks/";
+    private static final String MAPS_FILE       = TRACK_DIRECTORY + "maps.txt";
+    private static final Map<String, TrackData> tracks = new HashMap<>();
+    private static List<String> mapTracks;
+
+    // Object properties.
+    private final int imageWidth;
+    private final int imageHeight;
+    private final TrackMask mask;
+    private final List<Rectangle> checkpoints;
+    private final int startDirection;
+    private final Point[] startPositions;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final float lapLength;
+    private final FloatBuffer progress;
+    private final ByteBuffer travelDirections;
+    private final int[] racingLineX;
+    private final int[] racingLineY;
+    private final float[] racingLineDistances; // Distance along the lap to the start of each segment.
+    private final float[] racingLineLengths;
+    private final float[] racingLineNormalX; // Unit vector to the right of each segment.
+    private final float[] racingLineNormalY;
+
+    // Property access methods.
+    public int getImageWidth()                  { return imageWidth; }
+    public int getImageHeight()                 { return imageHeight; }
+    public TrackMask getMask()                  { return mask; }
+    public List<Rectangle> getCheckpoints()     { return checkpoints; }
+    public int getStartDirection()              { return startDirection; }
+    public Point getStartPosition(int index)    { return startPositions[index]; }
+    public float getLapLength()                 { return lapLength; }
+
+    // Constructor.
+    private TrackData(ByteBuffer file) {
+        if (file.getInt() != TrackCompiler.MAGIC) throw new IllegalStateException("Not a track file");
+        int version = file.getInt();
+        if (version != TrackCompiler.VERSION) throw new IllegalStateException("Unsupported track file version " + version);
+        imageWidth = file.getInt();
+        imageHeight = file.getInt();
+
+        mask = TrackMask.read(file);
+
+        // Checkpoints are stored as lines, which karts cross as one pixel wide rectangles.
+        List<Rectangle> lines = new ArrayList<>();
+        int checkpointCount = file.getInt();
+        for (int i = 0; i < checkpointCount; i++) {
+            int x1 = file.getInt();
+            int y1 = file.getInt();
+            int x2 = file.getInt();
+            int y2 = file.getInt();
+            lines.add(new Rectangle(Math.min(x1, x2), Math.min(y1, y2), Math.max(1, Math.abs(x2 - x1)), Math.max(1, Math.abs(y2 - y1))));
+        }
+        checkpoints = Collections.unmodifiableList(lines);
+
+        startDirection = file.getInt();
+        startPositions = new Point[file.getInt()];
+        for (int i = 0; i < startPositions.length; i++) startPositions[i] = new Point(file.getInt(), file.getInt());
+
+        cellSize = file.getInt();
+        columns = file.getInt();
+        rows = file.getInt();
+        lapLength = file.getFloat();
+        progress = file.slice(file.position(), columns * rows * Float.BYTES).asFloatBuffer();
+        file.position(file.position() + columns * rows * Float.BYTES);
+        travelDirections = file.slice(file.position(), columns * rows);
+        file.position(file.position() + columns * rows);
+
+        int points = file.getInt();
+        racingLineX = new int[points];
+        racingLineY = new int[points];
+        for (int i = 0; i < points; i++) {
+            racingLineX[i] = file.getInt();
+            racingLineY[i] = file.getInt();
+        }
+
+        // Each segment runs to the next point, and the last back to the finish line.
+        racingLineDistances = new float[points];
+        racingLineLengths = new float[points];
+        racingLineNormalX = new float[points];
+        racingLineNormalY = new float[points];
+        for (int i = 0; i < points; i++) {
+            int next = (i + 1) % points;
+            float moveX = racingLineX[next] - racingLineX[i];
+            float moveY = racingLineY[next] - racingLineY[i];
+            racingLineLengths[i] = (float) Math.hypot(moveX, moveY);
+            racingLineNormalX[i] = -moveY / racingLineLengths[i];
+            racingLineNormalY[i] = moveX / racingLineLengths[i];
+            if (i > 0) racingLineDistances[i] = racingLineDistances[i - 1] + racingLineLengths[i - 1];
+        }
+    }
+
+    public static TrackData load(int mapOption) {
+        synchronized (tracks) {
+            List<String> names = getMapTracks();
+            if (mapOption < 0 || mapOption >= names.size()) throw new IllegalArgumentException("No track for map option " + mapOption);
+            return tracks.computeIfAbsent(names.get(mapOption), name -> new TrackData(readTrackFile(TRACK_DIRECTORY + name + ".pkt")));
+        }
+    }
+
+    public static int getMapCount() {
+        synchronized (tracks) {
+            return getMapTracks().size();
+        }
+    }
+
+    // One track name per line in map option order, ignoring blank lines and comments.
+    private static List<String> getMapTracks() {
+        if (mapTracks != null) return mapTracks;
+
+        InputStream input = TrackData.class.getResourceAsStream(MAPS_FILE);
+        if (input == null) throw new IllegalStateException("Failed to locate the maps file " + MAPS_FILE);
+        List<String> names = new ArrayList<>();
+        try (var reader = new BufferedReader(new InputStreamReader(input))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) names.add(line);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to read the maps file " + MAPS_FILE + ": " + e.getMessage());
+        }
+        mapTracks = Collections.unmodifiableList(names);
+        return mapTracks;
+    }
+
+    // Maps the file straight into memory, or reads it whole if it's packaged somewhere that can't be mapped.
+    private static ByteBuffer readTrackFile(String path) {
+        URL location = TrackData.class.getResource(path);
+        if (location == null) throw new IllegalStateException("Failed to locate the track file " + path);
+
+        try {
+            if (location.getProtocol().equals("file")) {
+                try (FileChannel channel = FileChannel.open(Path.of(location.toURI()), StandardOpenOption.READ)) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            try (InputStream input = location.openStream()) {
+                return ByteBuffer.wrap(input.readAllBytes());
+            }
+        }
+        catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Failed to read the track file " + path + ": " + e.getMessage());
+        }
+    }
+
+    private int getCell(int x, int y) {
+        if (x < 0 || y < 0) return -1;
+        int column = x / cellSize;
+        int row = y / cellSize;
+        if (column >= columns || row >= rows) return -1;
+        return row * columns + column;
+    }
+
+    // Pixels along the lap from the finish line, or NOT_DRIVABLE off the track.
+    public float getProgress(int x, int y) {
+        int cell = getCell(x, y);
+        return cell < 0 ? NOT_DRIVABLE : progress.get(cell);
+    }
+
+    // The point the given distance along the lap on a line running parallel to the racing line, the offset
+    // to the right of it when positive. The parallel line's corners are mitred, so it keeps its distance
+    // from the racing line all the way round a corner.
+    public void getRacingLinePoint(float distance, float offset, Point2D.Float point) {
+        distance = ((distance % lapLength) + lapLength) % lapLength;
+        int segment = racingLineX.length - 1;
+        while (segment > 0 && racingLineDistances[segment] > distance) segment--;
+        int next = (segment + 1) % racingLineX.length;
+
+        getMitredPoint(segment, offset, point);
+        float fromX = point.x;
+        float fromY = point.y;
+        getMitredPoint(next, offset, point);
+        float along = (distance - racingLineDistances[segment]) / racingLineLengths[segment];
+        point.x = fromX + (point.x - fromX) * along;
+        point.y = fromY + (point.y - fromY) * along;
+    }
+
+    // The racing line's point moved along the average of the normals either side, far enough to be the offset from both.
+    private void getMitredPoint(int index, float offset, Point2D.Float point) {
+        int previous = (index + racingLineX.length - 1) % racingLineX.length;
+        float normalX = racingLineNormalX[previous] + racingLineNormalX[index];
+        float normalY = racingLineNormalY[previous] + racingLineNormalY[index];
+        float scale = offset / (1 + racingLineNormalX[previous] * racingLineNormalX[index] + racingLineNormalY[previous] * racingLineNormalY[index]);
+        point.x = racingLineX[index] + normalX * scale;
+        point.y = racingLineY[index] + normalY * scale;
+    }
+
+    // The direction, from 0 to 15, a kart should travel at this point, or NO_DIRECTION off the track.
+    public int getTravelDirection(int x, int y) {
+        int cell = getCell(x, y);
+        return cell < 0 ? NO_DIRECTION : travelDirections.get(cell);
+    }
+}
@@ -0,0 +1,135 @@
+package game.common;
+
+import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code TrackMask} class is a racetrack's drivable area compiled into
+ * one bit per pixel, along with a summed-area table of those bits. Whether
+ * a rectangle lies entirely on the track is then answered with four table
+ * lookups, however complex the track's shape.
+ * <p>
+ * A pixel is drivable if the whole of its square lies within the track,
+ * so a rectangle is on the track exactly when every pixel it covers is drivable.
+ */
+public class TrackMask {
+
+    // Object properties.
+    private final int originX;
+    private final int originY;
+    private final int width;
+    private final int height;
+    private final long[] drivableBits;
+    private final int[] summedArea; // Drivable pixels above and to the left, with a row and column of zeros first.
+
+    // Constructor.
+    private TrackMask(int originX, int originY, int width, int height, long[] drivableBits) {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+        this.drivableBits = drivableBits;
+        summedArea = new int[(width + 1) * (height + 1)];
+
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            for (int x = 0; x < width; x++) {
+                if (isBitSet(x, y)) rowSum++;
+                summedArea[(y + 1) * (width + 1) + x + 1] = summedArea[y * (width + 1) + x + 1] + rowSum;
+            }
+        }
+    }
+
+    public static TrackMask compile(Area track) {
+        Rectangle bounds = track.getBounds();
+        int width = bounds.width;
+        int height = bounds.height;
+
+        // Rasterising finds the inside of the track quickly, but only samples pixel centres.
+        var raster = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = raster.createGraphics();
+        g.translate(-bounds.x, -bounds.y);
+        g.setColor(Color.white);
+        g.fill(track);
+        g.dispose();
+        byte[] coverage = ((DataBufferByte) raster.getRaster().getDataBuffer()).getData();
+
+        var drivableBits = new long[(width * height + Long.SIZE - 1) / Long.SIZE];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean isDrivable = coverage[y * width + x] != 0;
+                // Pixels beside an edge may only be partly on the track, so test those exactly.
+                if (isDrivable && isNearEdge(coverage, width, height, x, y)) {
+                    isDrivable = track.contains(bounds.x + x, bounds.y + y, 1, 1);
+                }
+                if (isDrivable) {
+                    int bit = y * width + x;
+                    drivableBits[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+                }
+            }
+        }
+        return new TrackMask(bounds.x, bounds.y, width, height, drivableBits);
+    }
+
+    // The bounds and drivable bits, from which the summed-area table is rebuilt when read.
+    public void write(DataOutputStream output) throws IOException {
+        output.writeInt(originX);
+        output.writeInt(originY);
+        output.writeInt(width);
+        output.writeInt(height);
+        output.writeInt(drivableBits.length);
+        for (long bits : drivableBits) output.writeLong(bits);
+    }
+
+    public static TrackMask read(ByteBuffer input) {
+        int originX = input.getInt();
+        int originY = input.getInt();
+        int width = input.getInt();
+        int height = input.getInt();
+        var drivableBits = new long[input.getInt()];
+        input.asLongBuffer().get(drivableBits);
+        input.position(input.position() + drivableBits.length * Long.BYTES);
+        return new TrackMask(originX, originY, width, height, drivableBits);
+    }
+
+    private static boolean isNearEdge(byte[] coverage, int width, int height, int x, int y) {
+        if (x == 0 || y == 0 || x == width - 1 || y == height - 1) return true;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (coverage[(y + dy) * width + x + dx] == 0) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBitSet(int x, int y) {
+        int bit = y * width + x;
+        return (drivableBits[bit / Long.SIZE] & (1L << (bit % Long.SIZE))) != 0;
+    }
+
+    public boolean isDrivable(int x, int y) {
+        x -= originX;
+        y -= originY;
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return isBitSet(x, y);
+    }
+
+    // Matches Area.contains for rectangles with whole-pixel bounds.
+    public boolean contains(Rectangle rectangle) {
+        int left = rectangle.x - originX;
+        int top = rectangle.y - originY;
+        int right = left + rectangle.width;
+        int bottom = top + rectangle.height;
+        if (rectangle.width <= 0 || rectangle.height <= 0) return false;
+        if (left < 0 || top < 0 || right > width || bottom > height) return false;
+
+        int drivable = summedArea[bottom * (width + 1) + right] - summedArea[top * (width + 1) + right]
+                - summedArea[bottom * (width + 1) + left] + summedArea[top * (width + 1) + left];
+        return drivable == rectangle.width * rectangle.height;
+    }
+}
@@ -0,0 +1,148 @@
+package game.server;
+
+import game.common.KartPhysics;
+import game.common.TrackData;
+
+import java.awt.geom.Point2D;
+
+/**
+ * The {@code BotDriver} class is a computer player hosted by the server to
+ * fill a race slot no human has taken. It drives its own {@code KartPhysics}
+ * along the track's racing line, each bot in its own lane so they don't run
+ * into each other, by steering towards a point a short way ahead on the line.
+ * <p>
+ * Other players see a bot exactly as they see a human, from the kart states
+ * or lockstep inputs the server sends on its behalf.
+ */
+public class BotDriver {
+
+    // Constants.
+    private static final int TOTAL_LAPS         = GameManager.TOTAL_LAPS;
+    private static final float LOOKAHEAD        = 60; // Pixels along the racing line to steer towards.
+    private static final float LANE_WIDTH       = 28; // Pixels between lanes, wider than a kart.
+    private static final int CORNER_TURN        = 300; // Rotation units of turn still needed that count as a corner.
+    private static final int CORNER_SPEED       = 1200; // Speed a kart can take corners at without running wide.
+    private static final int STATE_INTERVAL     = 2; // Ticks between kart states sent to the players.
+    private static final int INPUT_LEAD         = 8; // Ticks lockstep inputs are sent ahead of the slowest player, so none waits on them.
+    private static final int CENTRE_OFFSET      = KartPhysics.HIT_BOX_BUFFER + KartPhysics.HIT_BOX_SIZE / 2;
+
+    // Object properties.
+    private final int playerNumber;
+    private final TrackData track;
+    private final KartPhysics physics;
+    private final float lane;
+    private final long raceStartTime;
+    private final boolean isLockstep;
+    private final Point2D.Float target = new Point2D.Float();
+    private final int[] lapCompletionTimes = new int[TOTAL_LAPS]; // Milliseconds into the race.
+
+    // Race progress.
+    private int tick = 0; // The next tick to simulate.
+    private float fieldProgress;
+    private float raceProgress; // Total pixels driven along the racing line since the start.
+    private int lapsCompleted = 0;
+
+    // Property access methods.
+    public int getPlayerNumber()    { return playerNumber; }
+    public boolean hasFinished()    { return lapsCompleted == TOTAL_LAPS; }
+    public int getFinishTime()      { return lapCompletionTimes[TOTAL_LAPS - 1]; }
+
+    // Constructor.
+    public BotDriver(int playerNumber, int lane, TrackData track, long raceStartTime, boolean isLockstep) {
+        this.playerNumber = playerNumber;
+        this.track = track;
+        this.lane = lane * LANE_WIDTH;
+        this.raceStartTime = raceStartTime;
+        this.isLockstep = isLockstep;
+        physics = new KartPhysics(track.getMask(), track.getStartDirection(), track.getStartPosition(playerNumber - 1));
+
+        // The grid is behind the finish line, so the first crossing starts lap one rather than ending it.
+        fieldProgress = getFieldProgress();
+        raceProgress = fieldProgress - track.getLapLength();
+    }
+
+    // Each lap's own time in milliseconds, as the players report them.
+    public int[] getLapTimes() {
+        int[] lapTimes = new int[TOTAL_LAPS];
+        for (int lap = 0; lap < TOTAL_LAPS; lap++) {
+            lapTimes[lap] = lapCompletionTimes[lap] - (lap == 0 ? 0 : lapCompletionTimes[lap - 1]);
+        }
+        return lapTimes;
+    }
+
+    // Simulates every tick due by the given server time, and sends the bot's kart to the players. Returns
+    // whether the bot finished the race. Called from the bot pool's workers, one thread at a time per bot.
+    public boolean update(long serverTime) {
+        long dueTicks = Math.floorDiv(serverTime - raceStartTime, KartPhysics.STEP_TIME);
+        // Lockstep inputs are paced by the slowest player's own inputs, so they never pile up at a player who has fallen behind.
+        if (isLockstep) dueTicks = Math.min(dueTicks, GameManager.getSlowestInputTick()) + INPUT_LEAD;
+        while (tick < dueTicks && !hasFinished()) {
+            // Lockstep players take the first ticks of the race as no keys held.
+            boolean isInputSent = isLockstep && tick >= KartPhysics.INPUT_DELAY;
+            int input = isLockstep && !isInputSent ? 0 : chooseInput();
+            physics.step(input);
+            if (isInputSent) ClientManager.sendKartInputToAllPlayers(playerNumber, tick, input);
+            tick++;
+            updateProgress();
+
+            if (!isLockstep && tick % STATE_INTERVAL == 0) sendKart();
+        }
+
+        // A lockstep bot runs ahead of the race, so it only wins once every player has simulated its finish.
+        if (isLockstep) return hasFinished() && GameManager.getSlowestInputTick() - KartPhysics.INPUT_DELAY >= tick;
+        return hasFinished();
+    }
+
+    private void sendKart() {
+        ClientManager.sendKartToAllPlayers(playerNumber, (float) physics.getRotation() / KartPhysics.ROTATION_UNITS,
+                KartPhysics.toPixels(physics.getSpeed()),
+                KartPhysics.toPixels(physics.getPositionX()), KartPhysics.toPixels(physics.getPositionY()));
+    }
+
+    // Steers towards the bot's lane a little way ahead, easing off for corners.
+    private int chooseInput() {
+        track.getRacingLinePoint(fieldProgress + LOOKAHEAD, lane, target);
+        double moveX = target.x - getCentreX();
+        double moveY = target.y - getCentreY();
+
+        // Rotation 0 faces up the screen and increases clockwise, as the angle does here.
+        int wantedRotation = (int) Math.round(Math.atan2(moveX, -moveY) / (2 * Math.PI) * KartPhysics.TURN_CIRCLE);
+        int turn = Math.floorMod(wantedRotation - physics.getRotation() + KartPhysics.TURN_CIRCLE / 2, KartPhysics.TURN_CIRCLE)
+                - KartPhysics.TURN_CIRCLE / 2;
+
+        int input = 0;
+        if (turn > KartPhysics.ROTATION_UNITS) input |= KartPhysics.INPUT_RIGHT;
+        else if (turn < -KartPhysics.ROTATION_UNITS) input |= KartPhysics.INPUT_LEFT;
+        if (Math.abs(turn) < CORNER_TURN || physics.getSpeed() < CORNER_SPEED) input |= KartPhysics.INPUT_FORWARD;
+        return input;
+    }
+
+    // Progress is unwrapped as the bot crosses the finish line, so laps can be counted from it.
+    private void updateProgress() {
+        float progress = getFieldProgress();
+        if (progress == TrackData.NOT_DRIVABLE) return;
+
+        float lapLength = track.getLapLength();
+        float change = progress - fieldProgress;
+        if (change < -lapLength / 2) change += lapLength;
+        else if (change > lapLength / 2) change -= lapLength;
+        fieldProgress = progress;
+        raceProgress += change;
+
+        while (lapsCompleted < TOTAL_LAPS && raceProgress >= (lapsCompleted + 1) * lapLength) {
+            lapCompletionTimes[lapsCompleted++] = (int) (tick * KartPhysics.STEP_TIME / 1000);
+        }
+    }
+
+    private float getFieldProgress() {
+        return track.getProgress((int) getCentreX(), (int) getCentreY());
+    }
+
+    private float getCentreX() {
+        return KartPhysics.toPixels(physics.getPositionX()) + CENTRE_OFFSET;
+    }
+
+    private float getCentreY() {
+        return KartPhysics.toPixels(physics.getPositionY()) + CENTRE_OFFSET;
+    }
+}
@@ -0,0 +1,116 @@
+package game.server;
+
+import game.common.KartPhysics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code BotPool} utility class steps every bot on the server, whichever
+ * race it's in. Once per simulation tick a clock thread splits the bots into
+ * batches and hands them to a shared pool of workers, one per core, so the
+ * number of threads stays fixed however many bots are driving.
+ * <p>
+ * The CPU time of each batch is measured, giving the average cost of one bot
+ * for a tick. It's reported while any bots are driving when the server is
+ * launched with {@code -Dpkr.bots.report=true}.
+ */
+public class BotPool {
+
+    // Constants, which can be overridden at launch with the matching system properties.
+    private static final int BATCH_SIZE         = Integer.getInteger("pkr.bots.batch", 32);
+    private static final int WORKERS            = Integer.getInteger("pkr.bots.workers", Runtime.getRuntime().availableProcessors());
+    private static final boolean REPORT_ENABLED = Boolean.getBoolean("pkr.bots.report");
+    private static final long REPORT_INTERVAL   = 60_000_000; // Microseconds between reports of the bots' cost.
+
+    // Every bot driving, and the threads that drive them, started with the first bot.
+    private static final List<BotDriver> bots = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService clock;
+    private static ExecutorService workers;
+
+    // Measured cost.
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final LongAdder cpuTime = new LongAdder();
+    private static final LongAdder botTicks = new LongAdder();
+    private static long lastReportTime = 0;
+
+    // Prevent object creation from the implicit public constructor.
+    private BotPool() {
+        throw new IllegalStateException("Tried to instantiate the BotPool utility class");
+    }
+
+    public static synchronized void add(List<BotDriver> raceBots) {
+        bots.addAll(raceBots);
+        if (clock != null) return;
+
+        lastReportTime = ServerClock.getTime(); // The first report waits for a full interval, once the bots have warmed up.
+        workers = Executors.newFixedThreadPool(WORKERS, task -> createThread(task, "Bot worker"));
+        clock = Executors.newSingleThreadScheduledExecutor(task -> createThread(task, "Bot clock"));
+        clock.scheduleAtFixedRate(BotPool::stepBots, 0, KartPhysics.STEP_TIME, TimeUnit.MICROSECONDS);
+    }
+
+    public static void remove(List<BotDriver> raceBots) {
+        bots.removeAll(raceBots);
+    }
+
+    private static Thread createThread(Runnable task, String name) {
+        var thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Average CPU time, in nanoseconds, to step one bot for one tick.
+    public static long getCpuTimePerBotTick() {
+        long ticks = botTicks.sum();
+        return ticks == 0 ? 0 : cpuTime.sum() / ticks;
+    }
+
+    // Clock thread runs this each tick, and waits for every batch so a slow tick delays the next rather than overlapping it.
+    private static void stepBots() {
+        List<BotDriver> driving = new ArrayList<>(bots);
+        if (driving.isEmpty()) return;
+
+        long serverTime = ServerClock.getTime();
+        List<Callable<Void>> batches = new ArrayList<>();
+        for (int start = 0; start < driving.size(); start += BATCH_SIZE) {
+            List<BotDriver> batch = driving.subList(start, Math.min(start + BATCH_SIZE, driving.size()));
+            batches.add(() -> stepBatch(batch, serverTime));
+        }
+
+        try {
+            for (Future<Void> result : workers.invokeAll(batches)) result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            System.err.println("Bot step failed: " + e.getCause());
+        }
+        reportCost(serverTime, driving.size());
+    }
+
+    private static Void stepBatch(List<BotDriver> batch, long serverTime) {
+        long startTime = getThreadTime();
+        for (BotDriver bot : batch) {
+            if (bot.update(serverTime)) GameManager.botWon(bot);
+        }
+        cpuTime.add(getThreadTime() - startTime);
+        botTicks.add(batch.size());
+        return null;
+    }
+
+    // Falls back to wall time on platforms that can't measure a thread's CPU time.
+    private static long getThreadTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private static void reportCost(long serverTime, int botCount) {
+        if (!REPORT_ENABLED || serverTime - lastReportTime < REPORT_INTERVAL) return;
+        lastReportTime = serverTime;
+        System.out.printf("%d bots driving, %.1f us of CPU per bot each tick%n", botCount, getCpuTimePerBotTick() / 1000.0);
+    }
+}
@@ -1,7 +1,15 @@
 package game.server;
 
+import game.common.KartPhysics;
+import game.common.TrackData;
+
 import java.io.*;
 import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@code ClientHandler} class sends requests/data to the client
@@ -9,6 +17,26 @@ import java.net.Socket;
  */
 public class ClientHandler implements Runnable {
 
+    // Inbound rate limits as a burst size and a sustained rate per second.
+    // These can be overridden at launch with the matching system properties.
+    private static final int KART_DATA_BURST    = Integer.getInteger("pkr.rate.kart.burst", 10);
+    private static final int KART_DATA_RATE     = Integer.getInteger("pkr.rate.kart", 80);
+    private static final int LOBBY_BURST        = Integer.getInteger("pkr.rate.lobby.burst", 5);
+    private static final int LOBBY_RATE         = Integer.getInteger("pkr.rate.lobby", 10);
+    private static final int TOTAL_BURST        = Integer.getInteger("pkr.rate.total.burst", 30);
+    private static final int TOTAL_RATE         = Integer.getInteger("pkr.rate.total", 120);
+
+    // Lockstep inputs are paced by the race clock rather than a rate limit, as none can be dropped.
+    private static final int MAX_INPUT_LEAD     = 40; // Ticks an input may be relayed ahead of the race clock.
+    private static final int MAX_HELD_INPUTS    = 200; // Inputs held back for the race clock before the player is disconnected.
+
+    // Releases commands held back by the rate limits once tokens refill, shared by every handler.
+    private static final ScheduledExecutorService releaseTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+        var thread = new Thread(task, "Rate limit release");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // Object properties.
     private final Socket server;
     private BufferedReader inputStreamFromClient;
@@ -17,8 +45,27 @@ public class ClientHandler implements Runnable {
     private int playerNumber;
     private boolean connectionActive = false;
 
+    // Rate limiting.
+    private final TokenBucket kartDataLimiter = new TokenBucket(KART_DATA_BURST, KART_DATA_RATE);
+    private final TokenBucket lobbyLimiter = new TokenBucket(LOBBY_BURST, LOBBY_RATE);
+    private final TokenBucket totalLimiter = new TokenBucket(TOTAL_BURST, TOTAL_RATE);
+    private final Object commandLock = new Object(); // Held while processing a command, by the handler or the release timer.
+    private String[] pendingKartData;
+    private boolean isLobbyResyncPending = false;
+    private boolean isReleaseScheduled = false;
+
+    // Kart movement checks.
+    private KartValidator kartValidator; // Created for each race's racetrack.
+
+    // Lockstep race progress.
+    private long raceStartTime;
+    private volatile int lastInputTick; // The tick of the latest input received.
+    private int relayedInputTick; // The tick of the latest input relayed to the other players.
+    private final Queue<Integer> heldInputs = new ArrayDeque<>(); // Received, but too far ahead of the race clock to relay.
+
     // Property access methods.
-    public int getPlayerNumber() { return playerNumber; }
+    public int getPlayerNumber()    { return playerNumber; }
+    public int getLastInputTick()   { return lastInputTick; }
 
     // Constructor.
     public ClientHandler(Socket server) { this.server = server; }
@@ -47,12 +94,31 @@ public class ClientHandler implements Runnable {
         sendCommand("UPDATE_WEATHER " + weather);
     }
 
+    public void updateOpponentKartInput(int opponentNumber, int inputTick, int input) {
+        sendCommand("OP_KART_INPUT " + opponentNumber + " " + inputTick + " " + input);
+    }
+
+    public void reportLockstepDesync(int tick, int firstPlayerNumber, int secondPlayerNumber) {
+        sendCommand("LOCKSTEP_DESYNC " + tick + " " + firstPlayerNumber + " " + secondPlayerNumber);
+    }
+
     public void updateOpponentKart(int kartNum, float rot, float speed, float posX, float posY) {
         sendCommand("SEND_OP_KART_DATA " + kartNum + " " + rot + " " + speed + " " + posX + " " + posY);
     }
 
-    public void startGame() {
-        sendCommand("REQUEST_START_GAME");
+    private void correctKart() {
+        sendCommand("CORRECT_KART_DATA " + kartValidator.getAcceptedSequence() + " "
+                + kartValidator.getAcceptedRotation() + " " + kartValidator.getAcceptedSpeed() + " "
+                + kartValidator.getAcceptedPositionX() + " " + kartValidator.getAcceptedPositionY());
+    }
+
+    public void startGame(long countdownStartTime, boolean isLockstep) {
+        kartValidator = new KartValidator(TrackData.load(GameManager.getMap()), playerNumber);
+        raceStartTime = countdownStartTime + GameManager.RACE_START_DELAY;
+        lastInputTick = KartPhysics.INPUT_DELAY - 1; // Players take the first ticks of the race as no keys held.
+        relayedInputTick = lastInputTick;
+        heldInputs.clear();
+        sendCommand("REQUEST_START_GAME " + countdownStartTime + " " + isLockstep);
     }
 
     public void raceLost(int winnerNumber) {
@@ -107,11 +173,13 @@ public class ClientHandler implements Runnable {
         messageFromClient = listenForCommand();
 
         if (clientCommandReceived()) {
-            try {
-                respondToClientCommands();
-            }
-            catch (IllegalStateException e) {
-                System.err.println(e.getMessage());
+            synchronized (commandLock) {
+                try {
+                    respondToRateLimitedCommand(messageFromClient.split(" "));
+                }
+                catch (IllegalStateException e) {
+                    System.err.println(e.getMessage());
+                }
             }
         }
     }
@@ -136,6 +204,12 @@ public class ClientHandler implements Runnable {
         sendCommand("RESPOND_CONN_CHECK");
     }
 
+    // Reply with the server time so the client can estimate its clock offset.
+    private void respondTimeSync(String[] data) {
+        long serverTime = ServerClock.getTime();
+        sendCommand("RESPOND_TIME_SYNC " + data[1] + " " + serverTime);
+    }
+
     private void getPlayerSize() {
         int playersJoined = LobbyManager.getPlayersInLobby().size();
         sendCommand("RESPOND_PLAYER_COUNT " + playersJoined);
@@ -226,28 +300,215 @@ public class ClientHandler implements Runnable {
     }
 
     private void processKartData(String[] data) {
+        if (kartValidator == null) return; // No race has started.
         try {
-            int kartNumber = Integer.parseInt(data[1]);
+            // The kart number sent is ignored, players can only move their own kart.
             float rotation = Float.parseFloat(data[2]);
             float speed = Float.parseFloat(data[3]);
             float positionX = Float.parseFloat(data[4]);
             float positionY = Float.parseFloat(data[5]);
+            int inputSequence = Integer.parseInt(data[6]);
 
-            ClientManager.sendKartToAllPlayers(this, kartNumber, rotation, speed, positionX, positionY);
+            // Only relay movement the kart could have made, otherwise correct the player.
+            if (kartValidator.isValid(inputSequence, rotation, speed, positionX, positionY)) {
+                ClientManager.sendKartToAllPlayers(playerNumber, rotation, speed, positionX, positionY);
+            }
+            else correctKart();
         }
         catch (NumberFormatException e) {
             System.err.println("Type conversion error when processing kart data: " + e.getMessage());
         }
     }
 
-    private void respondToClientCommands() {
-        String[] messageData = messageFromClient.split(" ");
+    // Each input must be for the tick after the last, as they arrive in the order they were sent. Inputs
+    // running too far ahead of the race clock are held and relayed as it catches up, so none is ever dropped.
+    private void processKartInput(String[] data) {
+        int inputTick = lastInputTick + 1;
+        int input = 0; // Anything unreadable still takes up its tick, as no keys held.
+        try {
+            inputTick = Integer.parseInt(data[1]);
+            input = Integer.parseInt(data[2]) & KartPhysics.INPUT_MASK;
+        }
+        catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Type conversion error when processing a kart input: " + e.getMessage());
+        }
+
+        if (inputTick != lastInputTick + 1) {
+            System.err.println("Player " + playerNumber + " sent a lockstep input for tick " + inputTick
+                    + ", expected tick " + (lastInputTick + 1) + ".");
+            return;
+        }
+        if (heldInputs.size() >= MAX_HELD_INPUTS) {
+            System.err.println("Player " + playerNumber + " sent lockstep inputs far faster than the race runs.");
+            endServerConnection();
+            return;
+        }
+        lastInputTick = inputTick;
+        heldInputs.add(input);
+        relayKartInputs();
+    }
+
+    private void relayKartInputs() {
+        while (!heldInputs.isEmpty() && relayedInputTick < getRaceTicks() + MAX_INPUT_LEAD) {
+            relayedInputTick++;
+            ClientManager.sendKartInputToAllPlayers(playerNumber, relayedInputTick, heldInputs.remove());
+        }
+    }
+
+    private long getRaceTicks() {
+        return Math.max(0, ServerClock.getTime() - raceStartTime) / KartPhysics.STEP_TIME;
+    }
+
+    private void processStateChecksum(String[] data) {
+        try {
+            int tick = Integer.parseInt(data[1]);
+            int checksum = Integer.parseInt(data[2]);
+            GameManager.recordStateChecksum(playerNumber, tick, checksum);
+        }
+        catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Type conversion error when processing a state checksum: " + e.getMessage());
+        }
+    }
+
+    private void processRaceWon(String[] data) {
+        try {
+            // Finish time followed by each lap time, all in milliseconds.
+            int finishTime = Integer.parseInt(data[1]);
+            int[] lapTimes = new int[data.length - 2];
+            for (int i = 0; i < lapTimes.length; i++) lapTimes[i] = Integer.parseInt(data[i + 2]);
+            if (!GameManager.playerWon(this, finishTime, lapTimes)) {
+                System.err.println("Rejected a race win from player " + playerNumber + ".");
+            }
+        }
+        catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Type conversion error when recording the race result: " + e.getMessage());
+        }
+    }
+
+    private void sendLeaderboard(String[] data) {
+        try {
+            int map = Integer.parseInt(data[1]);
+            boolean isBadWeather = Boolean.parseBoolean(data[2]);
+
+            var command = new StringBuilder("RESPOND_LEADERBOARD " + map + " " + isBadWeather);
+            RaceResult[] topResults = ResultStore.getTopResults(map, isBadWeather);
+            command.append(" ").append(topResults.length);
+            for (RaceResult result : topResults) {
+                command.append(" ").append(result.getWinnerNumber())
+                        .append(" ").append(result.getWinnerKart())
+                        .append(" ").append(result.getFinishTime());
+            }
+            sendCommand(command.toString());
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when sending the leaderboard: " + e.getMessage());
+        }
+    }
+
+    private void respondToRateLimitedCommand(String[] messageData) {
+        String command = messageData[0];
+        boolean isKartData = command.equals("SEND_KART_DATA");
+
+        // A newer kart update supersedes any held back, otherwise try to release it now.
+        if (isKartData) pendingKartData = null;
+        else flushPendingKartData();
+
+        if (isWithinRateLimit(command)) respondToClientCommands(messageData);
+        else if (isKartData) pendingKartData = messageData; // Coalesce, only the latest is kept.
+        else if (isLobbyCommand(command)) isLobbyResyncPending = true; // The player's lobby no longer matches the server's.
+        // Any other command over the limit is dropped to protect the other players.
+
+        scheduleRelease();
+    }
+
+    // Excess kart data waits here until tokens are available again, which is checked
+    // whenever the next command from this client arrives, or by the release timer.
+    private void flushPendingKartData() {
+        if (pendingKartData != null && isWithinRateLimit(pendingKartData[0])) {
+            String[] kartData = pendingKartData;
+            pendingKartData = null;
+            respondToClientCommands(kartData);
+        }
+    }
+
+    // Wakes once the tokens needed by anything held back have refilled, or the race clock has
+    // caught up with held inputs, so a player that goes quiet isn't left with a stale kart or lobby.
+    private void scheduleRelease() {
+        if (isReleaseScheduled) return;
+
+        long waitTime = Long.MAX_VALUE;
+        if (pendingKartData != null) waitTime = Math.max(kartDataLimiter.getWaitTime(), totalLimiter.getWaitTime());
+        else if (isLobbyResyncPending) waitTime = Math.max(lobbyLimiter.getWaitTime(), totalLimiter.getWaitTime());
+        if (!heldInputs.isEmpty()) {
+            long relayTime = raceStartTime + (relayedInputTick + 1 - MAX_INPUT_LEAD) * KartPhysics.STEP_TIME;
+            waitTime = Math.min(waitTime, Math.max(0, relayTime - ServerClock.getTime()) * 1000);
+        }
+        if (waitTime == Long.MAX_VALUE) return;
+
+        isReleaseScheduled = true;
+        releaseTimer.schedule(this::releaseHeldCommands, waitTime, TimeUnit.NANOSECONDS);
+    }
+
+    private void releaseHeldCommands() {
+        synchronized (commandLock) {
+            isReleaseScheduled = false;
+            if (!connectionActive) return;
+
+            flushPendingKartData();
+            resyncLobby();
+            relayKartInputs();
+            scheduleRelease(); // Anything still held back waits for the next tokens.
+        }
+    }
+
+    // Rather than silently dropping lobby commands over the limit, send the player the server's
+    // view of the lobby once tokens allow. Only one is sent for any number of dropped commands.
+    private void resyncLobby() {
+        if (!isLobbyResyncPending) return;
+        if (GameManager.isGameActive()) {
+            isLobbyResyncPending = false; // The lobby has closed, there's nothing to resync.
+            return;
+        }
+        if (!isWithinRateLimit("RESYNC_LOBBY")) return;
+
+        isLobbyResyncPending = false;
+        sendCommand("RESYNC_LOBBY " + LobbyManager.getLobbyState());
+    }
+
+    private boolean isLobbyCommand(String command) {
+        return switch (command) {
+            case "UPDATE_MAP_CHOICE", "UPDATE_OWN_KART_OPTION", "REQUEST_KART_CHOICE",
+                    "PLAYER_READY", "PLAYER_UNREADY" -> true;
+            default -> false;
+        };
+    }
+
+    private boolean isWithinRateLimit(String command) {
+        TokenBucket commandLimiter = switch (command) {
+            // Never limit commands that end the connection or the race, or lockstep inputs, which are paced by the race clock.
+            // A race win can't be flooded past the limit either, as only the first of a race is accepted.
+            case "END_CONNECTION", "END_CONN_INVALID", "END_GAME", "RACE_WON", "KART_INPUT" -> null;
+            case "SEND_KART_DATA" -> kartDataLimiter;
+            // Lobby resyncs share the lobby limit, so a flood of lobby commands can't be answered any faster.
+            case "UPDATE_MAP_CHOICE", "UPDATE_OWN_KART_OPTION", "REQUEST_KART_CHOICE",
+                    "PLAYER_READY", "PLAYER_UNREADY", "RESYNC_LOBBY" -> lobbyLimiter;
+            default -> totalLimiter;
+        };
+        if (commandLimiter == null) return true;
+        if (commandLimiter == totalLimiter) return totalLimiter.tryConsume();
+
+        // Check the command's own limit first so a rejected command doesn't use up the total.
+        return commandLimiter.tryConsume() && totalLimiter.tryConsume();
+    }
+
+    private void respondToClientCommands(String[] messageData) {
         String command = messageData[0];
 
         switch (command) {
             case "REQUEST_CONN_CHECK"           -> setConnectionActive();
             case "REQUEST_PLAYER_COUNT"         -> getPlayerSize();
             case "REQUEST_SERVER_STAGE"         -> getServerStage();
+            case "REQUEST_TIME_SYNC"            -> respondTimeSync(messageData);
             case "REQUEST_PL_LOBBY_DATA"        -> createPlayerLobbyData();
             case "PLAYER_READY"                 -> setPlayerReady(true);
             case "PLAYER_UNREADY"               -> setPlayerReady(false);
@@ -257,8 +518,11 @@ public class ClientHandler implements Runnable {
             case "REQUEST_KART_CHOICE"          -> sendKartChoice( messageData);
             case "UPDATE_MAP_CHOICE"            -> updateChosenMap(messageData);
             case "SEND_KART_DATA"               -> processKartData(messageData);
+            case "KART_INPUT"                   -> processKartInput(messageData);
+            case "STATE_CHECKSUM"               -> processStateChecksum(messageData);
             case "END_GAME"                     -> GameManager.endGame();
-            case "RACE_WON"                     -> GameManager.sendRaceWinnerToAllPlayers(this);
+            case "RACE_WON"                     -> processRaceWon(messageData);
+            case "REQUEST_LEADERBOARD"          -> sendLeaderboard(messageData);
             default -> throw new IllegalStateException("Unrecognised client command: " + command);
         }
     }
@@ -29,9 +29,9 @@ public class ClientManager {
         throw new IllegalStateException("Tried to instantiate the ClientManager utility class");
     }
 
-    public static void startGameForAllPlayers() {
+    public static void startGameForAllPlayers(long countdownStartTime, boolean isLockstep) {
         for (ClientHandler handler : GameManager.getPlayersInGame()) {
-            handler.startGame();
+            handler.startGame(countdownStartTime, isLockstep);
         }
     }
 
@@ -69,13 +69,21 @@ public class ClientManager {
         }
     }
 
-    public static void sendKartToAllPlayers(ClientHandler originator, int kartNum, float rot, float speed, float posX, float posY) {
+    // Karts are sent by player number, so bots are sent the same way as human players.
+    public static void sendKartToAllPlayers(int kartNum, float rot, float speed, float posX, float posY) {
         for (ClientHandler handler : GameManager.getPlayersInGame()) {
-            if (originator.equals(handler)) continue; // Don't send to self.
+            if (handler.getPlayerNumber() == kartNum) continue; // Don't send to self.
             handler.updateOpponentKart(kartNum, rot, speed, posX, posY);
         }
     }
 
+    public static void sendKartInputToAllPlayers(int playerNumber, int inputTick, int input) {
+        for (ClientHandler handler : GameManager.getPlayersInGame()) {
+            if (handler.getPlayerNumber() == playerNumber) continue; // Don't send to self.
+            handler.updateOpponentKartInput(playerNumber, inputTick, input);
+        }
+    }
+
     public static synchronized void closeConnection(ClientHandler originator) {
         connectedClients.remove(originator);
     }
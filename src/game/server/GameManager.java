@@ -1,45 +1,144 @@
 package game.server;
 
+import game.common.TrackData;
+
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The {@code GameManager} utility class controls the collections of information
  * about the game for the server to access and provide to clients that request it.
  * The class handles sending game-related details to other connected players.
+ * It also starts the bots filling any empty places in the race, and stops
+ * them once the race is won or every human player has left.
  */
 public class GameManager {
 
     // Constants.
-    private static final int RANDOM_MAP = 3;
+    private static final long COUNTDOWN_LEAD_TIME = 1_500_000; // Microseconds for clients to prepare the race.
+    private static final boolean LOCKSTEP = Boolean.getBoolean("pkr.net.lockstep"); // Share inputs rather than kart states.
+    public static final long RACE_START_DELAY = 3_000_000; // Microseconds from the countdown starting to the race.
+    public static final int TOTAL_LAPS = 3;
+    private static final int FINISH_TOLERANCE = 500; // Milliseconds a client's race clock may run ahead of the server's.
+    private static final int CHECKSUM_HISTORY = 64; // Ticks of lockstep checksums kept, well beyond how far apart players can be.
 
     // Game properties.
-    private static List<ClientHandler> playersInGame = new ArrayList<>();
+    private static List<ClientHandler> playersInGame = new CopyOnWriteArrayList<>(); // Also read by the bot workers.
     private static Map<Integer, Integer> kartChoices = new HashMap<>();
+    private static List<Integer> botNumbers = new ArrayList<>();
+    private static final List<BotDriver> bots = new ArrayList<>();
     private static int map = 0;
     private static boolean isBadWeather = false;
     private static boolean gameActive = false;
+    private static long raceStartTime;
+    private static boolean isRaceWon = false;
+
+    // The first lockstep checksum reported for each recent tick, and who reported it.
+    private static final int[] checksumTicks = new int[CHECKSUM_HISTORY];
+    private static final int[] checksums = new int[CHECKSUM_HISTORY];
+    private static final int[] checksumPlayers = new int[CHECKSUM_HISTORY];
+    private static boolean isDesyncReported = false;
 
     // Property access methods.
     public static boolean isGameActive() { return gameActive; }
+    public static int getMap() { return map; }
     public static List<ClientHandler> getPlayersInGame() { return playersInGame; }
+    public static synchronized int getKartChoice(int playerNumber) { return kartChoices.getOrDefault(playerNumber, 0); }
+
+    // The latest lockstep input tick every player has sent, read by the bots to pace their own inputs.
+    // A player has simulated at least the input delay fewer ticks than its latest input.
+    public static int getSlowestInputTick() {
+        int slowestInputTick = Integer.MAX_VALUE;
+        for (ClientHandler player : playersInGame) slowestInputTick = Math.min(slowestInputTick, player.getLastInputTick());
+        return slowestInputTick;
+    }
 
     // Prevent object creation from the implicit public constructor.
     private GameManager() {
         throw new IllegalStateException("Tried to instantiate the GameManager utility class");
     }
 
-    public static void removePlayer(ClientHandler o) {
+    // Bots don't race on their own, so the game ends when the last human leaves.
+    public static synchronized void removePlayer(ClientHandler o) {
         playersInGame.remove(o);
+        if (playersInGame.isEmpty()) endGame();
     }
 
-    public static synchronized void sendRaceWinnerToAllPlayers(ClientHandler winner) {
-        int winnerNumber = winner.getPlayerNumber();
+    // Only the first win of a race counts, from a player still in it, with a finish time the server's
+    // clock allows and lap times that add up to it. Returns whether the win was accepted.
+    public static synchronized boolean playerWon(ClientHandler player, int finishTime, int[] lapTimes) {
+        if (!gameActive || isRaceWon || !playersInGame.contains(player)) return false;
+
+        long raceTime = (ServerClock.getTime() - raceStartTime) / 1000;
+        int lapTimeTotal = 0;
+        for (int lapTime : lapTimes) {
+            if (lapTime <= 0) return false;
+            lapTimeTotal += lapTime;
+        }
+
+        // Each lap time is rounded down on its own, so their total can fall short by up to a millisecond a lap.
+        if (finishTime <= 0 || finishTime > raceTime + FINISH_TOLERANCE) return false;
+        if (lapTimes.length != TOTAL_LAPS || lapTimeTotal > finishTime || finishTime - lapTimeTotal >= TOTAL_LAPS) return false;
+
+        sendRaceWinnerToAllPlayers(player.getPlayerNumber());
+        recordRaceResult(player.getPlayerNumber(), finishTime, lapTimes);
+        return true;
+    }
+
+    private static void sendRaceWinnerToAllPlayers(int winnerNumber) {
+        isRaceWon = true;
+        stopBots();
         for (ClientHandler handler : getPlayersInGame()) {
-            if (winner.equals(handler)) continue; // Don't send to self.
+            if (handler.getPlayerNumber() == winnerNumber) continue; // Don't send to self.
             handler.raceLost(winnerNumber);
         }
     }
 
+    // Called from the bot pool. Only the first bot across the line wins, as the rest are stopped.
+    public static synchronized void botWon(BotDriver bot) {
+        if (!bots.contains(bot)) return;
+        sendRaceWinnerToAllPlayers(bot.getPlayerNumber());
+        recordRaceResult(bot.getPlayerNumber(), bot.getFinishTime(), bot.getLapTimes());
+    }
+
+    private static void recordRaceResult(int winnerNumber, int finishTime, int[] lapTimes) {
+        List<Integer> racers = new ArrayList<>();
+        for (ClientHandler player : playersInGame) racers.add(player.getPlayerNumber());
+        racers.addAll(botNumbers);
+
+        int[] playerNumbers = new int[racers.size()];
+        int[] playerKarts = new int[racers.size()];
+        for (int i = 0; i < racers.size(); i++) {
+            playerNumbers[i] = racers.get(i);
+            playerKarts[i] = kartChoices.getOrDefault(playerNumbers[i], 0);
+        }
+
+        ResultStore.record(new RaceResult(System.currentTimeMillis(), map, isBadWeather, winnerNumber,
+                kartChoices.getOrDefault(winnerNumber, 0), finishTime, lapTimes, playerNumbers, playerKarts));
+    }
+
+    // Every lockstep player's checksum for a tick should match the first one reported. Only the
+    // first desync is reported, as the players' races can't come back together after it.
+    public static synchronized void recordStateChecksum(int playerNumber, int tick, int checksum) {
+        if (!gameActive || isDesyncReported || tick <= 0) return;
+
+        int slot = tick % CHECKSUM_HISTORY;
+        if (checksumTicks[slot] != tick) {
+            checksumTicks[slot] = tick;
+            checksums[slot] = checksum;
+            checksumPlayers[slot] = playerNumber;
+            return;
+        }
+        if (checksums[slot] == checksum) return;
+
+        isDesyncReported = true;
+        System.err.println("Lockstep desync: player " + checksumPlayers[slot] + " and player " + playerNumber
+                + " simulated different karts by tick " + tick + ".");
+        for (ClientHandler handler : getPlayersInGame()) {
+            handler.reportLockstepDesync(tick, checksumPlayers[slot], playerNumber);
+        }
+    }
+
     private static void sendGameMapToAllPlayers() {
         for (ClientHandler handler : getPlayersInGame()) {
             handler.updateChosenMap(map);
@@ -60,26 +159,55 @@ public class GameManager {
         }
     }
 
-    public static void initiateGame(List<ClientHandler> connectedPlayers, Map<Integer, Integer> playerKartChoices, int chosenMap) {
+    public static synchronized void initiateGame(List<ClientHandler> connectedPlayers, Map<Integer, Integer> playerKartChoices,
+                                                 List<Integer> chosenBotNumbers, int chosenMap) {
         // Collect and store game information.
-        playersInGame = new ArrayList<>(connectedPlayers);
-        kartChoices = playerKartChoices;
+        playersInGame = new CopyOnWriteArrayList<>(connectedPlayers);
+        kartChoices = new HashMap<>(playerKartChoices); // The lobby's copy is cleared when it closes.
+        botNumbers = new ArrayList<>(chosenBotNumbers);
         gameActive = true;
+        isRaceWon = false;
+        Arrays.fill(checksumTicks, 0);
+        isDesyncReported = false;
 
-        // Assign a random map if requested, and a 50% change of poor weather.
-        map = (chosenMap == RANDOM_MAP) ? new Random().nextInt(3) : chosenMap;
+        // Assign a random map if requested, the option after the last map, and a 50% change of poor weather.
+        int mapCount = TrackData.getMapCount();
+        map = (chosenMap >= mapCount) ? new Random().nextInt(mapCount) : chosenMap;
         if (new Random().nextInt(2) == 0) isBadWeather = true;
 
         // Update connected clients with values post-randomisation in case they differ locally.
         sendGameMapToAllPlayers();
         sendWeatherToAllPlayers();
-        ClientManager.startGameForAllPlayers();
+
+        // Every client starts its countdown at the same server time, regardless of latency.
+        long countdownStartTime = ServerClock.getTime() + COUNTDOWN_LEAD_TIME;
+        raceStartTime = countdownStartTime + RACE_START_DELAY;
+        ClientManager.startGameForAllPlayers(countdownStartTime, LOCKSTEP);
+        startBots(raceStartTime);
+    }
+
+    // The grid is two rows, odd players on the left of the racing line and even on the right, and
+    // each bot keeps to its row's side of the line, so bots only ever follow one another.
+    private static void startBots(long botRaceStartTime) {
+        TrackData track = TrackData.load(map);
+        for (int botNumber : botNumbers) {
+            int lane = botNumber % 2 == 1 ? -1 : 1;
+            bots.add(new BotDriver(botNumber, lane, track, botRaceStartTime, LOCKSTEP));
+        }
+        BotPool.add(bots);
+    }
+
+    private static void stopBots() {
+        BotPool.remove(bots);
+        bots.clear();
     }
 
-    public static void endGame() {
+    public static synchronized void endGame() {
         if (gameActive) {
+            stopBots();
             playersInGame.clear();
             kartChoices.clear();
+            botNumbers.clear();
             map = 0;
             isBadWeather = false;
             gameActive = false;
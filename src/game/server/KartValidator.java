@@ -0,0 +1,103 @@
+package game.server;
+
+import game.common.KartPhysics;
+import game.common.TrackData;
+import game.common.TrackMask;
+
+import java.awt.*;
+
+/**
+ * The {@code KartValidator} class checks the kart states reported by a client
+ * against what the kart could physically have done since its last accepted state.
+ * States that are out of bounds, too fast, or off the track are rejected so the
+ * client can be corrected back to the last state the server accepted.
+ * <p>
+ * Until the client's first state is accepted, the last accepted state is the
+ * player's place on the start grid, so the first state is checked the same way.
+ * <p>
+ * The frames a client claims to have driven are capped by the server's own
+ * clock, so a client can't skip ahead by jumping its input sequence.
+ */
+public class KartValidator {
+
+    // Kart limits, taken from the kart physics shared with the client.
+    private static final float SPEED_MAX        = KartPhysics.toPixels(KartPhysics.SPEED_MAX);
+    private static final float SPEED_BOUNCE     = KartPhysics.toPixels(KartPhysics.SPEED_BOUNCE);
+    private static final int TURN_CIRCLE        = KartPhysics.TURN_CIRCLE / KartPhysics.ROTATION_UNITS;
+    private static final int HIT_BOX_BUFFER     = KartPhysics.HIT_BOX_BUFFER;
+    private static final int HIT_BOX_SIZE       = KartPhysics.HIT_BOX_SIZE;
+    private static final float TOLERANCE        = 1f;
+    private static final int FRAME_SLACK        = 8; // Frames of network jitter allowed, as states can arrive bunched together.
+
+    // The drivable track, read from the same track file as the client's racetrack.
+    private final TrackMask track;
+
+    // Last accepted state, the start grid until the client's first state.
+    private boolean hasAcceptedState = false;
+    private int acceptedSequence;
+    private long acceptedTime; // Server time the last state was accepted at.
+    private float acceptedRotation;
+    private float acceptedSpeed;
+    private float acceptedPositionX;
+    private float acceptedPositionY;
+
+    // Property access methods.
+    public int getAcceptedSequence()        { return acceptedSequence; }
+    public float getAcceptedRotation()      { return acceptedRotation; }
+    public float getAcceptedSpeed()         { return acceptedSpeed; }
+    public float getAcceptedPositionX()     { return acceptedPositionX; }
+    public float getAcceptedPositionY()     { return acceptedPositionY; }
+
+    // Constructor.
+    public KartValidator(TrackData trackData, int playerNumber) {
+        track = trackData.getMask();
+
+        var startState = new KartPhysics(track, trackData.getStartDirection(), trackData.getStartPosition(playerNumber - 1));
+        acceptedSequence = 0;
+        acceptedTime = ServerClock.getTime();
+        acceptedRotation = (float) startState.getRotation() / KartPhysics.ROTATION_UNITS;
+        acceptedSpeed = KartPhysics.toPixels(startState.getSpeed());
+        acceptedPositionX = KartPhysics.toPixels(startState.getPositionX());
+        acceptedPositionY = KartPhysics.toPixels(startState.getPositionY());
+    }
+
+    public boolean isValid(int sequence, float rotation, float speed, float positionX, float positionY) {
+        long serverTime = ServerClock.getTime();
+        boolean isValid = isWithinLimits(rotation, speed)
+                && isOnTrack(positionX, positionY)
+                && isReachable(sequence, positionX, positionY, serverTime);
+
+        if (isValid) {
+            hasAcceptedState = true;
+            acceptedSequence = sequence;
+            acceptedTime = serverTime;
+            acceptedRotation = rotation;
+            acceptedSpeed = speed;
+            acceptedPositionX = positionX;
+            acceptedPositionY = positionY;
+        }
+        return isValid;
+    }
+
+    private boolean isWithinLimits(float rotation, float speed) {
+        return rotation >= 0 && rotation < TURN_CIRCLE
+                && speed >= SPEED_BOUNCE && speed <= SPEED_MAX;
+    }
+
+    private boolean isOnTrack(float positionX, float positionY) {
+        return track.contains(new Rectangle((int) positionX + HIT_BOX_BUFFER, (int) positionY + HIT_BOX_BUFFER, HIT_BOX_SIZE, HIT_BOX_SIZE));
+    }
+
+    private boolean isReachable(int sequence, float positionX, float positionY, long serverTime) {
+        // The client can't have driven more frames than the server has seen time pass for. Only the
+        // client's first state may be from before any input, as the kart is still on the start grid.
+        int frames = sequence - acceptedSequence;
+        long elapsedFrames = (serverTime - acceptedTime) / KartPhysics.STEP_TIME;
+        if (frames < 0 || (frames == 0 && hasAcceptedState) || frames > elapsedFrames + FRAME_SLACK) return false;
+
+        // Each frame of input moves the kart by at most the top speed along each axis.
+        float maxDistance = frames * SPEED_MAX + TOLERANCE;
+        return Math.abs(positionX - acceptedPositionX) <= maxDistance
+                && Math.abs(positionY - acceptedPositionY) <= maxDistance;
+    }
+}
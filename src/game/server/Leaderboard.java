@@ -0,0 +1,40 @@
+package game.server;
+
+import java.util.Arrays;
+
+/**
+ * The {@code Leaderboard} class keeps the fastest race results for one
+ * map and weather combination, sorted from fastest to slowest.
+ * Only the top results are kept, so queries never scan the race history.
+ */
+public class Leaderboard {
+
+    // Object properties.
+    private final RaceResult[] topResults;
+    private int size = 0;
+
+    // Constructor.
+    public Leaderboard(int capacity) {
+        topResults = new RaceResult[capacity];
+    }
+
+    public synchronized void add(RaceResult result) {
+        int finishTime = result.getFinishTime();
+
+        // Ignore results that are slower than everything on a full board.
+        if (size == topResults.length && finishTime >= topResults[size - 1].getFinishTime()) return;
+
+        // Shift slower results down to make room, dropping the slowest if full.
+        int index = Math.min(size, topResults.length - 1);
+        while (index > 0 && topResults[index - 1].getFinishTime() > finishTime) {
+            topResults[index] = topResults[index - 1];
+            index--;
+        }
+        topResults[index] = result;
+        if (size < topResults.length) size++;
+    }
+
+    public synchronized RaceResult[] getTopResults() {
+        return Arrays.copyOf(topResults, size);
+    }
+}
@@ -6,12 +6,14 @@ import java.util.*;
  * The {@code LobbyManager} utility class controls the collections of information
  * about the lobby for the server to access and provide to clients that request it.
  * The class handles sending lobby-related details to other connected players.
- * The class also handles checking if a new game is eligible to be created.
+ * The class also handles checking if a new game is eligible to be created,
+ * and fills any places left in it with bots as it starts.
  */
 public class LobbyManager {
 
     // Constants.
     private static final int VALID_KART_CHOICES = 7;
+    private static final int MAX_BOTS           = Integer.getInteger("pkr.bots", 6); // Set to 0 to race without bots.
 
     // Lobby properties.
     private static List<Integer> validPlayerNumbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
@@ -74,12 +76,13 @@ public class LobbyManager {
         chosenMap = mapChoice;
     }
 
+    // Bots join as the game starts, so their kart can be asked for once the lobby has closed.
     public static synchronized int getKartChoice(int playerNumber) {
         try {
             return playerKartChoices.get(playerNumber);
         }
         catch (NullPointerException e) {
-            return 0;
+            return GameManager.getKartChoice(playerNumber);
         }
     }
 
@@ -91,6 +94,19 @@ public class LobbyManager {
         return chosenMap;
     }
 
+    // The map, then the number, kart and ready state of each player, for a client to resync its lobby with.
+    public static synchronized String getLobbyState() {
+        var state = new StringBuilder(String.valueOf(chosenMap));
+        for (ClientHandler player : playersInLobby) {
+            int playerNumber = player.getPlayerNumber();
+            if (!playerKartChoices.containsKey(playerNumber) || !playerReadyStates.containsKey(playerNumber)) continue;
+            state.append(" ").append(playerNumber)
+                    .append(" ").append(playerKartChoices.get(playerNumber))
+                    .append(" ").append(playerReadyStates.get(playerNumber));
+        }
+        return state.toString();
+    }
+
     public static synchronized List<ClientHandler> getPlayersInLobby() {
         return playersInLobby;
     }
@@ -107,11 +123,29 @@ public class LobbyManager {
         // A minimum of 2 players is required to start.
         // All players in the lobby must be ready to start.
         if (!playerReadyStates.containsValue(false) && playerReadyStates.size() >= 2) {
-            GameManager.initiateGame(playersInLobby, playerKartChoices, chosenMap);
+            List<Integer> botNumbers = addBots();
+            GameManager.initiateGame(playersInLobby, playerKartChoices, botNumbers, chosenMap);
             closeLobby();
         }
     }
 
+    // Bots take the unused player numbers and karts, and join as ready players just before the game starts.
+    private static List<Integer> addBots() {
+        List<Integer> botNumbers = new ArrayList<>(validPlayerNumbers);
+        Collections.sort(botNumbers);
+        botNumbers = botNumbers.subList(0, Math.min(MAX_BOTS, botNumbers.size()));
+
+        for (int botNumber : botNumbers) {
+            int kartChoice = setKartChoice(botNumber);
+            for (ClientHandler handler : playersInLobby) {
+                handler.updateConnectedPlayers(botNumber);
+                handler.updateOpponentKartChoice(botNumber, kartChoice);
+                handler.updateOpponentReadyState(botNumber, true);
+            }
+        }
+        return botNumbers;
+    }
+
     private static void closeLobby() {
         // Reset lobby properties.
         validPlayerNumbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
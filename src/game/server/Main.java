@@ -5,6 +5,7 @@ package game.server;
  */
 public class Main {
     public static void main(String[] args) {
+        ResultStore.open();
         ClientManager.establishConnection();
     }
 }
@@ -0,0 +1,94 @@
+package game.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The {@code RaceResult} class holds the outcome of a finished race,
+ * and can write itself to and read itself from the result log.
+ */
+public class RaceResult {
+
+    // Constants.
+    private static final byte FORMAT_VERSION = 1;
+
+    // Object properties.
+    private final long recordedAt;
+    private final int map;
+    private final boolean isBadWeather;
+    private final int winnerNumber;
+    private final int winnerKart;
+    private final int finishTime;
+    private final int[] lapTimes;
+    private final int[] playerNumbers;
+    private final int[] playerKarts;
+
+    // Property access methods.
+    public long getRecordedAt()     { return recordedAt; }
+    public int getMap()             { return map; }
+    public boolean isBadWeather()   { return isBadWeather; }
+    public int getWinnerNumber()    { return winnerNumber; }
+    public int getWinnerKart()      { return winnerKart; }
+    public int getFinishTime()      { return finishTime; }
+    public int[] getLapTimes()      { return lapTimes.clone(); }
+    public int[] getPlayerNumbers() { return playerNumbers.clone(); }
+    public int[] getPlayerKarts()   { return playerKarts.clone(); }
+
+    // Constructor.
+    public RaceResult(long recordedAt, int map, boolean isBadWeather, int winnerNumber, int winnerKart,
+                      int finishTime, int[] lapTimes, int[] playerNumbers, int[] playerKarts) {
+        this.recordedAt = recordedAt;
+        this.map = map;
+        this.isBadWeather = isBadWeather;
+        this.winnerNumber = winnerNumber;
+        this.winnerKart = winnerKart;
+        this.finishTime = finishTime;
+        this.lapTimes = lapTimes.clone();
+        this.playerNumbers = playerNumbers.clone();
+        this.playerKarts = playerKarts.clone();
+    }
+
+    public void writeTo(DataOutputStream output) throws IOException {
+        output.writeByte(FORMAT_VERSION);
+        output.writeLong(recordedAt);
+        output.writeByte(map);
+        output.writeBoolean(isBadWeather);
+        output.writeByte(winnerNumber);
+        output.writeByte(winnerKart);
+        output.writeInt(finishTime);
+        output.writeByte(lapTimes.length);
+        for (int lapTime : lapTimes) output.writeInt(lapTime);
+        output.writeByte(playerNumbers.length);
+        for (int i = 0; i < playerNumbers.length; i++) {
+            output.writeByte(playerNumbers[i]);
+            output.writeByte(playerKarts[i]);
+        }
+    }
+
+    public static RaceResult readFrom(DataInputStream input) throws IOException {
+        byte version = input.readByte();
+        if (version != FORMAT_VERSION) throw new IOException("Unsupported race result version: " + version);
+
+        long recordedAt = input.readLong();
+        int map = input.readByte();
+        boolean isBadWeather = input.readBoolean();
+        int winnerNumber = input.readByte();
+        int winnerKart = input.readByte();
+        int finishTime = input.readInt();
+
+        int[] lapTimes = new int[input.readByte()];
+        for (int i = 0; i < lapTimes.length; i++) lapTimes[i] = input.readInt();
+
+        int playerCount = input.readByte();
+        int[] playerNumbers = new int[playerCount];
+        int[] playerKarts = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            playerNumbers[i] = input.readByte();
+            playerKarts[i] = input.readByte();
+        }
+
+        return new RaceResult(recordedAt, map, isBadWeather, winnerNumber, winnerKart,
+                finishTime, lapTimes, playerNumbers, playerKarts);
+    }
+}
@@ -0,0 +1,172 @@
+package game.server;
+
+import game.common.TrackData;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code ResultStore} utility class keeps every finished race in an
+ * append-only log on disk and serves leaderboards from an in-memory index.
+ * Results are written by a background thread that commits each batch
+ * of queued results with a single flush to disk. On startup the log is
+ * replayed to rebuild the index, and any partly written record is cut off.
+ */
+public class ResultStore {
+
+    // Constants.
+    private static final String LOG_FILE        = System.getProperty("pkr.results.file", "./results/raceResults.log");
+    private static final int LEADERBOARD_SIZE   = 10;
+    private static final int RECORD_HEADER      = Integer.BYTES;
+    private static final int RECORD_FOOTER      = Long.BYTES;
+
+    // Leaderboards indexed by map and weather.
+    private static final Leaderboard[] leaderboards = createLeaderboards();
+
+    // Results waiting to be written.
+    private static final BlockingQueue<RaceResult> pendingResults = new LinkedBlockingQueue<>();
+    private static FileChannel log;
+
+    // Prevent object creation from the implicit public constructor.
+    private ResultStore() {
+        throw new IllegalStateException("Tried to instantiate the ResultStore utility class");
+    }
+
+    public static void open() {
+        try {
+            Path logPath = Paths.get(LOG_FILE);
+            if (logPath.getParent() != null) Files.createDirectories(logPath.getParent());
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replayLog();
+
+            Thread writer = new Thread(ResultStore::writeResults, "ResultStore-Writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        catch (IOException e) {
+            System.err.println("Race results will not be saved: " + e.getMessage());
+            log = null;
+        }
+    }
+
+    // The result is visible on the leaderboard straight away and saved to disk shortly after.
+    public static void record(RaceResult result) {
+        if (!isValidMap(result.getMap())) return;
+        getLeaderboard(result.getMap(), result.isBadWeather()).add(result);
+        if (log != null) pendingResults.add(result);
+    }
+
+    public static RaceResult[] getTopResults(int map, boolean isBadWeather) {
+        if (!isValidMap(map)) return new RaceResult[0];
+        return getLeaderboard(map, isBadWeather).getTopResults();
+    }
+
+    private static Leaderboard[] createLeaderboards() {
+        var boards = new Leaderboard[TrackData.getMapCount() * 2];
+        for (int i = 0; i < boards.length; i++) boards[i] = new Leaderboard(LEADERBOARD_SIZE);
+        return boards;
+    }
+
+    private static Leaderboard getLeaderboard(int map, boolean isBadWeather) {
+        return leaderboards[map * 2 + (isBadWeather ? 1 : 0)];
+    }
+
+    private static boolean isValidMap(int map) {
+        return map >= 0 && map < TrackData.getMapCount();
+    }
+
+    // Writer thread loops here.
+    private static void writeResults() {
+        List<RaceResult> batch = new ArrayList<>();
+        while (true) {
+            try {
+                // Wait for one result, then take everything else that queued up behind it.
+                batch.add(pendingResults.take());
+                pendingResults.drainTo(batch);
+                appendToLog(batch);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (IOException e) {
+                System.err.println("Failed to save race results: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    // Each record is its length, the result, then a checksum so torn writes can be detected.
+    private static void appendToLog(List<RaceResult> batch) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var output = new DataOutputStream(bytes);
+        var record = new ByteArrayOutputStream();
+        var checksum = new CRC32();
+
+        for (RaceResult result : batch) {
+            record.reset();
+            result.writeTo(new DataOutputStream(record));
+            checksum.reset();
+            checksum.update(record.toByteArray());
+
+            output.writeInt(record.size());
+            record.writeTo(output);
+            output.writeLong(checksum.getValue());
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) log.write(buffer, log.size());
+        log.force(false); // One flush to disk for the whole batch.
+    }
+
+    private static void indexRecord(byte[] record) {
+        try {
+            RaceResult result = RaceResult.readFrom(new DataInputStream(new ByteArrayInputStream(record)));
+            if (isValidMap(result.getMap())) getLeaderboard(result.getMap(), result.isBadWeather()).add(result);
+        }
+        catch (IOException e) {
+            // The record is intact but unreadable by this version, so keep it and move on.
+            System.err.println("Skipping race result: " + e.getMessage());
+        }
+    }
+
+    private static void replayLog() throws IOException {
+        long validLength = 0;
+        long logLength = log.size();
+        var checksum = new CRC32();
+
+        // The stream is left open, as closing it would also close the log.
+        var input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.position(0))));
+        try {
+            while (validLength + RECORD_HEADER <= logLength) {
+                int recordLength = input.readInt();
+                if (recordLength <= 0 || validLength + RECORD_HEADER + recordLength + RECORD_FOOTER > logLength) break;
+
+                byte[] record = new byte[recordLength];
+                input.readFully(record);
+                checksum.reset();
+                checksum.update(record);
+                if (input.readLong() != checksum.getValue()) break;
+
+                indexRecord(record);
+                validLength += RECORD_HEADER + recordLength + RECORD_FOOTER;
+            }
+        }
+        catch (EOFException e) {
+            // A partly written record at the end, cut off below.
+        }
+
+        if (validLength < logLength) {
+            System.err.println("Discarding " + (logLength - validLength) + " bytes of incomplete race results.");
+            log.truncate(validLength);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package game.server;
+
+/**
+ * The {@code ServerClock} utility class provides the server time that
+ * clients synchronise their clocks against.
+ */
+public class ServerClock {
+
+    // Prevent object creation from the implicit public constructor.
+    private ServerClock() {
+        throw new IllegalStateException("Tried to instantiate the ServerClock utility class");
+    }
+
+    // Server time in microseconds, taken from a monotonic clock so it never jumps.
+    public static long getTime() {
+        return System.nanoTime() / 1000;
+    }
+}
@@ -0,0 +1,45 @@
+package game.server;
+
+/**
+ * The {@code TokenBucket} class limits how often an action may be performed.
+ * Short bursts are allowed up to the bucket's capacity, after which
+ * tokens are refilled at a steady rate.
+ */
+public class TokenBucket {
+
+    // Constants.
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    // Object properties.
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillTime;
+
+    // Constructor.
+    public TokenBucket(int capacity, int tokensPerSecond) {
+        this.capacity = capacity;
+        tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+        tokens = capacity;
+        lastRefillTime = System.nanoTime();
+    }
+
+    public boolean tryConsume() {
+        refill();
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+
+    // Nanoseconds until a token is available, 0 if one already is.
+    public long getWaitTime() {
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillTime) * tokensPerNano);
+        lastRefillTime = now;
+    }
+}